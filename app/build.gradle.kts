@@ -78,12 +78,20 @@ dependencies {
     // Gson
     implementation("com.google.code.gson:gson:2.10.1")
 
+    // Background item posting
+    implementation("androidx.work:work-runtime:2.9.1")
+
+    // Generated Firestore mappers (see :mapper-processor)
+    compileOnly(project(":mapper-processor"))
+    annotationProcessor(project(":mapper-processor"))
+
     // ❌ REMOVE Coroutines (not needed for Java):
     // implementation("org.jetbrains.kotlinx:kotlinx-coroutines-android:1.7.3")
     // implementation("org.jetbrains.kotlinx:kotlinx-coroutines-play-services:1.7.3")
 
     // Testing
     testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     androidTestImplementation("androidx.test.ext:junit:1.2.1")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.6.1")
 }
\ No newline at end of file
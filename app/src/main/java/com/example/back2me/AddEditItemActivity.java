@@ -5,8 +5,6 @@ import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
@@ -22,10 +20,6 @@ import com.example.back2me.databinding.ActivityAddEditItemBinding;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
 public class AddEditItemActivity extends AppCompatActivity {
 
@@ -33,12 +27,12 @@ public class AddEditItemActivity extends AppCompatActivity {
 
     private ActivityAddEditItemBinding binding;
     private FirebaseAuth auth;
-    private Handler mainHandler;
 
     private String selectedStatus = "lost";
     private Uri selectedImageUri = null;
     private Bitmap selectedBitmap = null;
-    private boolean isUploading = false;
+    // Set while the post is being queued
+    private boolean isPosting = false;
 
     // Camera launcher
     private final ActivityResultLauncher<Void> cameraLauncher =
@@ -79,7 +73,6 @@ public class AddEditItemActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
 
         auth = FirebaseAuth.getInstance();
-        mainHandler = new Handler(Looper.getMainLooper());
 
         setupUI();
         setupClickListeners();
@@ -175,7 +168,7 @@ public class AddEditItemActivity extends AppCompatActivity {
             return;
         }
 
-        if (isUploading) {
+        if (isPosting) {
             Toast.makeText(this, R.string.please_wait, Toast.LENGTH_SHORT).show();
             return;
         }
@@ -187,76 +180,7 @@ public class AddEditItemActivity extends AppCompatActivity {
         }
 
         setLoading(true);
-
-        // Check if we have an image to upload
-        if (selectedBitmap != null) {
-            uploadBitmapToCloudinary(name, location, description, currentUser.getUid());
-        } else if (selectedImageUri != null) {
-            uploadUriToCloudinary(name, location, description, currentUser.getUid());
-        } else {
-            createItem(name, location, description, currentUser.getUid(), "");
-        }
-    }
-
-    private void uploadBitmapToCloudinary(String name, String location, String description, String userId) {
-        isUploading = true;
-        Log.d(TAG, "Uploading bitmap to Cloudinary...");
-
-        CloudinaryHelper.uploadBitmap(selectedBitmap, new CloudinaryHelper.UploadCallback() {
-            @Override
-            public void onSuccess(String imageUrl) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    Log.d(TAG, "Cloudinary upload success: " + imageUrl);
-                    createItem(name, location, description, userId, imageUrl);
-                });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    setLoading(false);
-                    Log.e(TAG, "Cloudinary upload error: " + errorMessage);
-                    Toast.makeText(AddEditItemActivity.this,
-                            "Failed to upload image: " + errorMessage, Toast.LENGTH_LONG).show();
-                });
-            }
-        });
-    }
-
-    private void uploadUriToCloudinary(String name, String location, String description, String userId) {
-        isUploading = true;
-        Log.d(TAG, "Uploading URI to Cloudinary...");
-
-        CloudinaryHelper.uploadUri(this, selectedImageUri, new CloudinaryHelper.UploadCallback() {
-            @Override
-            public void onSuccess(String imageUrl) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    Log.d(TAG, "Cloudinary upload success: " + imageUrl);
-                    createItem(name, location, description, userId, imageUrl);
-                });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    setLoading(false);
-                    Log.e(TAG, "Cloudinary upload error: " + errorMessage);
-                    Toast.makeText(AddEditItemActivity.this,
-                            "Failed to upload image: " + errorMessage, Toast.LENGTH_LONG).show();
-                });
-            }
-        });
-    }
-
-    private void createItem(String name, String location, String description,
-                            String userId, String imageUrl) {
-        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        String createdDate = isoFormat.format(new Date());
+        isPosting = true;
 
         Item item = new Item(
                 "",
@@ -264,29 +188,30 @@ public class AddEditItemActivity extends AppCompatActivity {
                 location,
                 description,
                 selectedStatus,
-                userId,
-                createdDate,
-                imageUrl
+                currentUser.getUid(),
+                Timestamps.nowIso(),
+                ""
         );
 
-        Log.d(TAG, "Creating item with imageUrl: " + (imageUrl.isEmpty() ? "(none)" : imageUrl));
-
-        ItemRepository.createItem(item, new ItemRepository.CreateCallback() {
+        // The upload and the write run in the background; the user can leave once it is queued
+        ItemPostQueue.post(this, item, selectedBitmap, selectedImageUri, new ItemPostQueue.QueueCallback() {
             @Override
-            public void onSuccess(Item createdItem) {
-                setLoading(false);
-                Log.d(TAG, "Item created successfully: " + createdItem.getId());
-                Toast.makeText(AddEditItemActivity.this,
-                        R.string.item_posted_successfully, Toast.LENGTH_SHORT).show();
-                finish();
+            public void onQueued(String itemId) {
+                Log.d(TAG, "Item queued for posting: " + itemId);
+                Toast.makeText(getApplicationContext(), R.string.item_post_queued, Toast.LENGTH_SHORT).show();
+                if (!isDestroyed()) {
+                    finish();
+                }
             }
 
             @Override
-            public void onError(Exception e) {
+            public void onError(String errorMessage) {
+                isPosting = false;
+                Log.e(TAG, "Error queueing item: " + errorMessage);
+                if (isDestroyed()) return;
                 setLoading(false);
-                Log.e(TAG, "Error creating item", e);
                 Toast.makeText(AddEditItemActivity.this,
-                        getString(R.string.error_posting_item) + ": " + e.getMessage(),
+                        getString(R.string.error_posting_item) + ": " + errorMessage,
                         Toast.LENGTH_LONG).show();
             }
         });
@@ -16,6 +16,12 @@ public class Back2MeApplication extends Application {
 
         // Apply saved theme on app start
         applyTheme();
+
+        // Keep resolved user names across launches
+        UserProfileCache.getInstance().init(this);
+
+        // Serve items and claims from the device before the network answers
+        LocalStore.init(this);
     }
 
     private void applyTheme() {
@@ -7,25 +7,26 @@ import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.back2me.databinding.ActivityChatBinding;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class ChatActivity extends AppCompatActivity {
 
     private static final String TAG = "ChatActivity";
+    // Rows from the top of the list at which the previous page is requested
+    private static final int OLDER_PREFETCH_DISTANCE = 5;
 
     private ActivityChatBinding binding;
     private MessagesAdapter adapter;
-    private List<Message> messages = new ArrayList<>();
 
     private FirebaseAuth auth;
     private FirebaseFirestore db;
@@ -37,7 +38,8 @@ public class ChatActivity extends AppCompatActivity {
     private String itemName;
     private String itemId;
 
-    private ListenerRegistration messagesListener;
+    private ChatHistoryWindow historyWindow;
+    private OutboundMessageQueue outboundQueue;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,6 +76,7 @@ public class ChatActivity extends AppCompatActivity {
         } else {
             setupUI();
             setupRecyclerView();
+            setupOutboundQueue();
             startListeningToMessages();
 
             // Look up real user name
@@ -84,25 +87,25 @@ public class ChatActivity extends AppCompatActivity {
     private void lookupUserName() {
         if (otherUserId == null || otherUserId.isEmpty()) return;
 
-        // First try users collection
-        db.collection("users").document(otherUserId)
-                .get()
-                .addOnSuccessListener(document -> {
-                    if (document.exists()) {
-                        String displayName = document.getString("displayName");
-                        if (displayName != null && !displayName.isEmpty()) {
-                            otherUserName = displayName;
-                            updateHeaderUI();
-                            return;
-                        }
-                    }
-                    // If not found in users, try to get from messages
-                    lookupNameFromMessages();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error looking up user", e);
-                    lookupNameFromMessages();
-                });
+        // First try the user's profile
+        UserProfileRepository.getProfile(otherUserId, new UserProfileRepository.ProfileCallback() {
+            @Override
+            public void onSuccess(UserProfile profile) {
+                if (profile != null && profile.hasDisplayName()) {
+                    otherUserName = profile.getDisplayName();
+                    updateHeaderUI();
+                    return;
+                }
+                // If not found in users, try to get from messages
+                lookupNameFromMessages();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error looking up user", e);
+                lookupNameFromMessages();
+            }
+        });
     }
 
     private void lookupNameFromMessages() {
@@ -119,6 +122,7 @@ public class ChatActivity extends AppCompatActivity {
                     if (!querySnapshot.isEmpty()) {
                         String senderName = querySnapshot.getDocuments().get(0).getString("senderName");
                         if (senderName != null && !senderName.isEmpty() && !senderName.equals("Item Owner")) {
+                            UserProfileRepository.rememberDisplayName(otherUserId, senderName);
                             otherUserName = senderName;
                             updateHeaderUI();
                         }
@@ -155,18 +159,20 @@ public class ChatActivity extends AppCompatActivity {
         binding.progressBar.setVisibility(View.VISIBLE);
 
         // Look up real name before creating conversation
-        db.collection("users").document(otherUserId)
-                .get()
-                .addOnSuccessListener(document -> {
-                    if (document.exists()) {
-                        String displayName = document.getString("displayName");
-                        if (displayName != null && !displayName.isEmpty()) {
-                            otherUserName = displayName;
-                        }
-                    }
-                    doCreateConversation();
-                })
-                .addOnFailureListener(e -> doCreateConversation());
+        UserProfileRepository.getProfile(otherUserId, new UserProfileRepository.ProfileCallback() {
+            @Override
+            public void onSuccess(UserProfile profile) {
+                if (profile != null && profile.hasDisplayName()) {
+                    otherUserName = profile.getDisplayName();
+                }
+                doCreateConversation();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                doCreateConversation();
+            }
+        });
     }
 
     private void doCreateConversation() {
@@ -182,6 +188,7 @@ public class ChatActivity extends AppCompatActivity {
                         conversationId = conversation.getId();
                         setupUI();
                         setupRecyclerView();
+                        setupOutboundQueue();
                         startListeningToMessages();
                     }
 
@@ -198,14 +205,23 @@ public class ChatActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
+    protected void onDestroy() {
+        super.onDestroy();
+        if (outboundQueue != null) {
+            outboundQueue.shutdown();
+        }
+    }
+
+    // Not onPause: a dialog over the chat shouldn't detach it
+    @Override
+    protected void onStop() {
+        super.onStop();
         stopListeningToMessages();
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
+    protected void onStart() {
+        super.onStart();
         if (conversationId != null && !conversationId.isEmpty()) {
             startListeningToMessages();
         }
@@ -256,63 +272,146 @@ public class ChatActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        adapter = new MessagesAdapter(messages, currentUserId);
+        adapter = new MessagesAdapter(currentUserId, message -> outboundQueue.retry(message.getId()));
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         layoutManager.setStackFromEnd(true);
         binding.recyclerMessages.setLayoutManager(layoutManager);
         binding.recyclerMessages.setAdapter(adapter);
-    }
 
-    private void startListeningToMessages() {
-        if (conversationId == null || conversationId.isEmpty()) return;
+        // Page in older history when scrolling up towards the first message
+        binding.recyclerMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0 || historyWindow == null) return;
+                if (layoutManager.findFirstVisibleItemPosition() <= OLDER_PREFETCH_DISTANCE) {
+                    historyWindow.loadOlder();
+                }
+            }
+        });
+    }
 
-        messagesListener = ChatRepository.listenToMessages(conversationId,
-                new ChatRepository.MessagesCallback() {
+    private void setupOutboundQueue() {
+        outboundQueue = new OutboundMessageQueue(conversationId, currentUserId, currentUserName,
+                new OutboundMessageQueue.Listener() {
                     @Override
-                    public void onSuccess(List<Message> messagesList) {
-                        messages.clear();
-                        messages.addAll(messagesList);
-                        adapter.notifyDataSetChanged();
-
-                        // Scroll to bottom
-                        if (!messages.isEmpty()) {
-                            binding.recyclerMessages.scrollToPosition(messages.size() - 1);
-                        }
-
-                        // Try to get other user's name from messages if not found yet
-                        if ((otherUserName == null || otherUserName.equals("Item Owner") || otherUserName.equals("User"))
-                                && otherUserId != null) {
-                            for (Message msg : messagesList) {
-                                if (otherUserId.equals(msg.getSenderId())) {
-                                    String name = msg.getSenderName();
-                                    if (name != null && !name.isEmpty() && !name.equals("Item Owner")) {
-                                        otherUserName = name;
-                                        updateHeaderUI();
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-
+                    public void onQueued(Message message) {
+                        adapter.addPending(message);
+                        scrollToBottom();
                         updateEmptyState();
                     }
 
                     @Override
-                    public void onError(Exception e) {
-                        Log.e(TAG, "Error loading messages", e);
+                    public void onStateChanged(Message message) {
+                        adapter.updateSendState(message);
+                        if (message.getSendState() == Message.SendState.FAILED) {
+                            Toast.makeText(ChatActivity.this,
+                                    R.string.error_sending_message,
+                                    Toast.LENGTH_SHORT).show();
+                        }
                     }
                 });
     }
 
+    private void startListeningToMessages() {
+        if (conversationId == null || conversationId.isEmpty()) return;
+        if (historyWindow == null) {
+            historyWindow = new ChatHistoryWindow(conversationId, new ChatHistoryWindow.Listener() {
+                @Override
+                public void onReset(List<Message> messagesList) {
+                    adapter.setMessages(messagesList);
+                    scrollToBottom();
+                    for (Message msg : messagesList) {
+                        if (updateNameFromMessage(msg)) break;
+                    }
+                    updateEmptyState();
+                }
+
+                @Override
+                public void onWindowReplaced(int fromPosition, List<Message> messagesList) {
+                    // Older pages and the scroll position stay as they were
+                    adapter.replaceFrom(fromPosition, messagesList);
+                    updateEmptyState();
+                }
+
+                @Override
+                public void onChanges(List<MessageChange> changes) {
+                    int countBefore = adapter.getListenedCount();
+                    adapter.applyChanges(changes);
+
+                    // Follow the conversation when something lands at the end
+                    boolean appended = false;
+                    for (MessageChange change : changes) {
+                        if (change.getType() == MessageChange.Type.ADDED) {
+                            appended |= change.getNewIndex() >= countBefore;
+                            updateNameFromMessage(change.getMessage());
+                        }
+                    }
+                    if (appended) {
+                        scrollToBottom();
+                    }
+                    updateEmptyState();
+                }
+
+                @Override
+                public void onOlderLoaded(List<Message> older) {
+                    prependKeepingPosition(older);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Error loading messages", e);
+                }
+            });
+        }
+        // onCreate and onStart both start listening; start() ignores the second call
+        historyWindow.start();
+    }
+
+    // Insert older messages above the viewport without moving what the user is reading
+    private void prependKeepingPosition(List<Message> older) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) binding.recyclerMessages.getLayoutManager();
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        View firstView = layoutManager.findViewByPosition(firstVisible);
+        int offset = firstView != null ? firstView.getTop() : 0;
+
+        adapter.prependMessages(older);
+
+        if (firstVisible != RecyclerView.NO_POSITION) {
+            layoutManager.scrollToPositionWithOffset(firstVisible + older.size(), offset);
+        }
+    }
+
+    private void scrollToBottom() {
+        int count = adapter.getItemCount();
+        if (count > 0) {
+            binding.recyclerMessages.scrollToPosition(count - 1);
+        }
+    }
+
+    // Try to get other user's name from messages if not found yet
+    private boolean updateNameFromMessage(Message msg) {
+        if (otherUserId == null || !otherUserId.equals(msg.getSenderId())) return false;
+        if (otherUserName != null && !otherUserName.equals("Item Owner") && !otherUserName.equals("User")) {
+            return false;
+        }
+
+        String name = msg.getSenderName();
+        if (name != null && !name.isEmpty() && !name.equals("Item Owner")) {
+            otherUserName = name;
+            updateHeaderUI();
+            return true;
+        }
+        return false;
+    }
+
     private void stopListeningToMessages() {
-        if (messagesListener != null) {
-            messagesListener.remove();
-            messagesListener = null;
+        if (historyWindow != null) {
+            historyWindow.stop();
         }
     }
 
     private void updateEmptyState() {
-        if (messages.isEmpty()) {
+        if (adapter.getItemCount() == 0) {
             binding.layoutEmptyState.setVisibility(View.VISIBLE);
             binding.recyclerMessages.setVisibility(View.GONE);
         } else {
@@ -325,26 +424,8 @@ public class ChatActivity extends AppCompatActivity {
         String text = binding.editMessage.getText().toString().trim();
         if (text.isEmpty()) return;
 
-        // Clear input immediately
+        // Clear input immediately; the message shows at once with a sending state
         binding.editMessage.setText("");
-
-        ChatRepository.sendMessage(conversationId, currentUserId, currentUserName, text,
-                new ChatRepository.OperationCallback() {
-                    @Override
-                    public void onSuccess() {
-                        // Message will appear via listener
-                        Log.d(TAG, "Message sent successfully");
-                    }
-
-                    @Override
-                    public void onError(Exception e) {
-                        Log.e(TAG, "Error sending message", e);
-                        Toast.makeText(ChatActivity.this,
-                                R.string.error_sending_message,
-                                Toast.LENGTH_SHORT).show();
-                        // Restore the message text
-                        binding.editMessage.setText(text);
-                    }
-                });
+        outboundQueue.send(text);
     }
 }
\ No newline at end of file
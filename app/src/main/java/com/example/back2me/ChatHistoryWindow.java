@@ -0,0 +1,207 @@
+package com.example.back2me;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a conversation's newest messages live and pages older history in
+ * on demand, so opening a long conversation only downloads one window.
+ *
+ * Displayed positions are older pages first, then the live window. The
+ * listener reports positions inside the window, so they are shifted by the
+ * number of messages shown above it. When a new message pushes the oldest
+ * one out of the window, that message stays on screen and simply becomes
+ * part of the older history.
+ *
+ * Stopping and starting again keeps the older pages. The listener is
+ * re-attached from the first message of the original window, so the rows
+ * below the pages are replaced by everything since, with nothing missed
+ * while detached.
+ */
+public class ChatHistoryWindow {
+
+    public interface Listener {
+        // Full replacement after the first attach
+        void onReset(List<Message> messages);
+        // After re-attaching, replaces every displayed row from fromPosition on
+        void onWindowReplaced(int fromPosition, List<Message> messages);
+        // Live changes, with positions in the displayed list
+        void onChanges(List<MessageChange> changes);
+        // An older page, to be inserted at the top
+        void onOlderLoaded(List<Message> older);
+        void onError(Exception e);
+    }
+
+    public static final int DEFAULT_WINDOW_SIZE = 50;
+    public static final int DEFAULT_PAGE_SIZE = 30;
+
+    private final String conversationId;
+    private final int windowSize;
+    private final int pageSize;
+    private final Listener listener;
+
+    private ListenerRegistration registration;
+    private DocumentSnapshot oldestDocument;
+    // First message of the first window; re-attaching listens from here
+    private DocumentSnapshot windowStartDocument;
+    private boolean hasOlder = false;
+    private boolean loadingOlder = false;
+    // Messages displayed above the live window, and the window's current size
+    private int olderCount = 0;
+    private int windowCount = 0;
+    // Messages displayed from older pages only, without the ones slid out of the window
+    private int pagedCount = 0;
+    // False once re-attached from windowStartDocument, which has no limit and so never slides
+    private boolean bounded = true;
+    // Bumped on every (re)attach so older pages for a previous window are dropped
+    private int generation = 0;
+
+    public ChatHistoryWindow(String conversationId, Listener listener) {
+        this(conversationId, DEFAULT_WINDOW_SIZE, DEFAULT_PAGE_SIZE, listener);
+    }
+
+    public ChatHistoryWindow(String conversationId, int windowSize, int pageSize, Listener listener) {
+        this.conversationId = conversationId;
+        this.windowSize = windowSize;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    public boolean isLoadingOlder() {
+        return loadingOlder;
+    }
+
+    // Attach the live listener. The first snapshot replaces everything shown the
+    // first time, and only the rows below the older pages after a stop.
+    public void start() {
+        if (registration != null) return;
+
+        final int startGeneration = ++generation;
+        loadingOlder = false;
+        final boolean resuming = windowStartDocument != null;
+
+        ChatRepository.MessageChangesCallback callback = new ChatRepository.MessageChangesCallback() {
+            @Override
+            public void onInitial(List<Message> messages, DocumentSnapshot oldest) {
+                if (startGeneration != generation) return;
+                if (resuming) {
+                    olderCount = pagedCount;
+                    windowCount = messages.size();
+                    bounded = false;
+                    listener.onWindowReplaced(pagedCount, messages);
+                    return;
+                }
+                oldestDocument = oldest;
+                windowStartDocument = oldest;
+                hasOlder = messages.size() == windowSize;
+                olderCount = 0;
+                pagedCount = 0;
+                windowCount = messages.size();
+                bounded = true;
+                listener.onReset(messages);
+            }
+
+            @Override
+            public void onChanges(List<MessageChange> changes) {
+                if (startGeneration != generation) return;
+                List<MessageChange> shifted = shiftChanges(changes);
+                if (!shifted.isEmpty()) {
+                    listener.onChanges(shifted);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        };
+
+        registration = resuming
+                ? ChatRepository.listenToMessagesFrom(conversationId, windowStartDocument, callback)
+                : ChatRepository.listenToMessages(conversationId, windowSize, callback);
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        generation++;
+    }
+
+    // Fetch the page before the oldest displayed message; ignored while busy or at the start
+    public void loadOlder() {
+        if (loadingOlder || !hasOlder || oldestDocument == null) return;
+
+        loadingOlder = true;
+        final int requestGeneration = generation;
+
+        ChatRepository.getMessagesBefore(conversationId, oldestDocument, pageSize,
+                new ChatRepository.MessagesPageCallback() {
+                    @Override
+                    public void onSuccess(List<Message> messages, DocumentSnapshot oldest, boolean hasMore) {
+                        if (requestGeneration != generation) return;
+                        loadingOlder = false;
+                        hasOlder = hasMore;
+                        if (messages.isEmpty()) return;
+
+                        oldestDocument = oldest;
+                        olderCount += messages.size();
+                        pagedCount += messages.size();
+                        listener.onOlderLoaded(messages);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (requestGeneration != generation) return;
+                        loadingOlder = false;
+                        listener.onError(e);
+                    }
+                });
+    }
+
+    // Translate window positions into displayed positions, dropping window slides
+    private List<MessageChange> shiftChanges(List<MessageChange> changes) {
+        // A full window that gains messages drops the same number from its start.
+        // Firestore reports removals first, so those leading removals are slides.
+        int slides = 0;
+        if (bounded && windowCount == windowSize) {
+            for (MessageChange change : changes) {
+                if (change.getType() == MessageChange.Type.ADDED) slides++;
+            }
+        }
+
+        List<MessageChange> shifted = new ArrayList<>(changes.size());
+        for (MessageChange change : changes) {
+            switch (change.getType()) {
+                case REMOVED:
+                    windowCount--;
+                    if (slides > 0 && change.getOldIndex() == 0) {
+                        slides--;
+                        olderCount++;
+                        continue;
+                    }
+                    shifted.add(new MessageChange(MessageChange.Type.REMOVED, change.getMessage(),
+                            change.getOldIndex() + olderCount, -1));
+                    break;
+                case ADDED:
+                    windowCount++;
+                    shifted.add(new MessageChange(MessageChange.Type.ADDED, change.getMessage(),
+                            -1, change.getNewIndex() + olderCount));
+                    break;
+                case MODIFIED:
+                    shifted.add(new MessageChange(MessageChange.Type.MODIFIED, change.getMessage(),
+                            change.getOldIndex() + olderCount, change.getNewIndex() + olderCount));
+                    break;
+            }
+        }
+        return shifted;
+    }
+}
@@ -1,21 +1,22 @@
 package com.example.back2me;
 
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
 
 public class ChatRepository {
 
@@ -23,9 +24,12 @@ public class ChatRepository {
     private static final String MESSAGES_COLLECTION = "messages";
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
 
+    // Last time handed out by newMessageTimestamp
+    private static long lastMessageMillis = 0;
+
     // Callback interfaces
-    public interface ConversationsCallback {
-        void onSuccess(List<Conversation> conversations);
+    public interface ConversationsPageCallback {
+        void onSuccess(List<Conversation> conversations, DocumentSnapshot lastDocument, boolean hasMore);
         void onError(Exception e);
     }
 
@@ -34,8 +38,16 @@ public class ChatRepository {
         void onError(Exception e);
     }
 
-    public interface MessagesCallback {
-        void onSuccess(List<Message> messages);
+    public interface MessageChangesCallback {
+        // First snapshot after attaching: the full ordered window and its oldest document
+        void onInitial(List<Message> messages, DocumentSnapshot oldestDocument);
+        // Every later snapshot: only what changed
+        void onChanges(List<MessageChange> changes);
+        void onError(Exception e);
+    }
+
+    public interface MessagesPageCallback {
+        void onSuccess(List<Message> messages, DocumentSnapshot oldestDocument, boolean hasMore);
         void onError(Exception e);
     }
 
@@ -44,153 +56,300 @@ public class ChatRepository {
         void onError(Exception e);
     }
 
-    // Get conversations for user (without orderBy to avoid index requirement)
-    public static void getConversationsForUser(String userId, ConversationsCallback callback) {
-        db.collection(CONVERSATIONS_COLLECTION)
+    // Most recently active conversations first.
+    // Needs a composite index: participants (array-contains) + lastMessageTime (descending),
+    // defined in firestore.indexes.json; without it the query fails with FAILED_PRECONDITION.
+    private static Query conversationsQuery(String userId) {
+        return db.collection(CONVERSATIONS_COLLECTION)
                 .whereArrayContains("participants", userId)
+                .orderBy("lastMessageTime", Query.Direction.DESCENDING);
+    }
+
+    // Listen to the user's newest conversations. Every snapshot delivers the
+    // whole ordered list, but only documents that changed are converted again.
+    public static ListenerRegistration listenToConversations(String userId, int limit,
+                                                             ConversationsPageCallback callback) {
+        final List<Conversation> conversations = new ArrayList<>();
+        return conversationsQuery(userId)
+                .limit(limit)
+                .addSnapshotListener((queryDocumentSnapshots, e) -> {
+                    if (e != null) {
+                        callback.onError(e);
+                        return;
+                    }
+                    if (queryDocumentSnapshots == null) return;
+
+                    for (DocumentChange change : queryDocumentSnapshots.getDocumentChanges()) {
+                        switch (change.getType()) {
+                            case ADDED:
+                                conversations.add(change.getNewIndex(), ConversationMapper.fromDocument(change.getDocument()));
+                                break;
+                            case MODIFIED:
+                                conversations.remove(change.getOldIndex());
+                                conversations.add(change.getNewIndex(), ConversationMapper.fromDocument(change.getDocument()));
+                                break;
+                            case REMOVED:
+                                conversations.remove(change.getOldIndex());
+                                break;
+                        }
+                    }
+
+                    List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                    DocumentSnapshot last = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                    callback.onSuccess(new ArrayList<>(conversations), last, documents.size() == limit);
+                });
+    }
+
+    // Get the page of conversations after the cursor
+    public static void getConversationsPage(String userId, DocumentSnapshot cursor, int pageSize,
+                                            ConversationsPageCallback callback) {
+        conversationsQuery(userId)
+                .startAfter(cursor)
+                .limit(pageSize)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Conversation> conversations = new ArrayList<>();
+                    List<Conversation> conversations = new ArrayList<>(queryDocumentSnapshots.size());
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Conversation conversation = documentToConversation(document);
-                        conversations.add(conversation);
+                        conversations.add(ConversationMapper.fromDocument(document));
                     }
-                    // Sort locally by lastMessageTime descending
-                    sortConversationsByDateDesc(conversations);
-                    callback.onSuccess(conversations);
+                    List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                    DocumentSnapshot last = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                    callback.onSuccess(conversations, last, documents.size() == pageSize);
                 })
                 .addOnFailureListener(callback::onError);
     }
 
-    // Get or create conversation
+    /**
+     * Conversation ID for two users talking about one item: the sorted user
+     * IDs followed by the item ID, so both sides derive the same key.
+     */
+    public static String conversationId(String user1Id, String user2Id, String itemId) {
+        String first = user1Id.compareTo(user2Id) <= 0 ? user1Id : user2Id;
+        String second = first.equals(user1Id) ? user2Id : user1Id;
+        StringBuilder key = new StringBuilder(first).append('_').append(second);
+        if (itemId != null && !itemId.isEmpty()) {
+            key.append('_').append(itemId);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get or create conversation. The keyed document is read first; when it
+     * is missing, a conversation stored under a random ID before keys were
+     * introduced is looked for and reused. Only if neither exists is the
+     * keyed document created, in a transaction so concurrent creates meet.
+     */
     public static void getOrCreateConversation(
             String user1Id, String user1Name,
             String user2Id, String user2Name,
             String itemId, String itemName,
             ConversationCallback callback) {
 
-        // Check for existing conversation
+        DocumentReference conversationRef = db.collection(CONVERSATIONS_COLLECTION)
+                .document(conversationId(user1Id, user2Id, itemId));
+
+        conversationRef.get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.exists()) {
+                        callback.onSuccess(ConversationMapper.fromDocument(snapshot));
+                        return;
+                    }
+                    findLegacyConversation(user1Id, user2Id, itemId, new ConversationCallback() {
+                        @Override
+                        public void onSuccess(Conversation legacy) {
+                            if (legacy != null) {
+                                callback.onSuccess(legacy);
+                            } else {
+                                createConversation(conversationRef, user1Id, user1Name, user2Id, user2Name,
+                                        itemId, itemName, callback);
+                            }
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            callback.onError(e);
+                        }
+                    });
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    // Conversation about the item between the two users under a random ID, or null.
+    // Equality and array-contains filters are served by merging single-field indexes.
+    private static void findLegacyConversation(String user1Id, String user2Id, String itemId,
+                                               ConversationCallback callback) {
         db.collection(CONVERSATIONS_COLLECTION)
                 .whereArrayContains("participants", user1Id)
+                .whereEqualTo("itemId", itemId)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
-                    Conversation existingConversation = null;
-
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        List<String> participants = (List<String>) document.get("participants");
-                        String docItemId = document.getString("itemId");
-
-                        if (participants != null && participants.contains(user2Id) &&
-                                itemId.equals(docItemId)) {
-                            existingConversation = documentToConversation(document);
-                            break;
+                        List<?> participants = (List<?>) document.get("participants");
+                        if (participants != null && participants.contains(user2Id)) {
+                            callback.onSuccess(ConversationMapper.fromDocument(document));
+                            return;
                         }
                     }
-
-                    if (existingConversation != null) {
-                        callback.onSuccess(existingConversation);
-                    } else {
-                        // Create new conversation
-                        createConversation(user1Id, user1Name, user2Id, user2Name, itemId, itemName, callback);
-                    }
+                    callback.onSuccess(null);
                 })
                 .addOnFailureListener(callback::onError);
     }
 
+    // Create the keyed conversation unless a concurrent caller already did
     private static void createConversation(
+            DocumentReference conversationRef,
             String user1Id, String user1Name,
             String user2Id, String user2Name,
             String itemId, String itemName,
             ConversationCallback callback) {
 
-        String timestamp = getCurrentTimestamp();
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot existing = transaction.get(conversationRef);
+                    if (existing.exists()) {
+                        return ConversationMapper.fromDocument(existing);
+                    }
+
+                    String timestamp = getCurrentTimestamp();
+                    Map<String, String> participantNames =
+                            createParticipantNamesMap(user1Id, user1Name, user2Id, user2Name);
 
-        Map<String, Object> conversationData = new HashMap<>();
-        conversationData.put("participants", Arrays.asList(user1Id, user2Id));
-        conversationData.put("participantNames", createParticipantNamesMap(user1Id, user1Name, user2Id, user2Name));
-        conversationData.put("itemId", itemId);
-        conversationData.put("itemName", itemName);
-        conversationData.put("lastMessage", "");
-        conversationData.put("lastMessageTime", timestamp);
-        conversationData.put("createdAt", timestamp);
+                    Conversation conversation = new Conversation(conversationRef.getId(),
+                            Arrays.asList(user1Id, user2Id), participantNames, itemId, itemName, "", timestamp);
+                    Map<String, Object> conversationData = ConversationMapper.toMap(conversation);
+                    conversationData.put("createdAt", timestamp);
+                    transaction.set(conversationRef, conversationData);
 
-        db.collection(CONVERSATIONS_COLLECTION)
-                .add(conversationData)
-                .addOnSuccessListener(documentReference -> {
-                    documentReference.update("id", documentReference.getId());
-
-                    Conversation conversation = new Conversation();
-                    conversation.setId(documentReference.getId());
-                    conversation.setParticipants(Arrays.asList(user1Id, user2Id));
-                    conversation.setItemId(itemId);
-                    conversation.setItemName(itemName);
-                    conversation.setLastMessage("");
-                    conversation.setLastMessageTime(timestamp);
-
-                    callback.onSuccess(conversation);
+                    return conversation;
                 })
+                .addOnSuccessListener(callback::onSuccess)
                 .addOnFailureListener(callback::onError);
     }
 
+    // New message ID, generated on the client without a round trip
+    public static String newMessageId(String conversationId) {
+        return db.collection(CONVERSATIONS_COLLECTION)
+                .document(conversationId)
+                .collection(MESSAGES_COLLECTION)
+                .document()
+                .getId();
+    }
+
+    /**
+     * Timestamp for a new message: ISO with milliseconds, and later than
+     * any given out before on this device, so messages sent in the same
+     * second still sort in send order. Old second-precision timestamps
+     * keep sorting as they did.
+     */
+    public static synchronized String newMessageTimestamp() {
+        lastMessageMillis = Math.max(System.currentTimeMillis(), lastMessageMillis + 1);
+        return Timestamps.toIsoMillis(lastMessageMillis);
+    }
+
     // Send message
     public static void sendMessage(String conversationId, String senderId, String senderName, String text, OperationCallback callback) {
-        String timestamp = getCurrentTimestamp();
+        Message message = new Message(newMessageId(conversationId), senderId, senderName, text,
+                newMessageTimestamp(), false);
+        sendMessages(conversationId, Collections.singletonList(message), callback);
+    }
 
-        Map<String, Object> messageData = new HashMap<>();
-        messageData.put("senderId", senderId);
-        messageData.put("senderName", senderName);
-        messageData.put("text", text);
-        messageData.put("timestamp", timestamp);
+    /**
+     * Send messages under IDs the client already chose. The messages and the
+     * conversation summary are committed together in one batch, and because
+     * the IDs are fixed, retrying a send whose result was lost cannot
+     * duplicate anything. Offline, the commit neither succeeds nor fails
+     * until the server is reached; Firestore keeps the writes meanwhile, so
+     * an error here means the server refused or failed the batch.
+     */
+    public static void sendMessages(String conversationId, List<Message> messages, OperationCallback callback) {
+        DocumentReference conversationRef = db.collection(CONVERSATIONS_COLLECTION).document(conversationId);
+        WriteBatch batch = db.batch();
 
-        db.collection(CONVERSATIONS_COLLECTION)
-                .document(conversationId)
-                .collection(MESSAGES_COLLECTION)
-                .add(messageData)
-                .addOnSuccessListener(documentReference -> {
-                    // Update last message in conversation
-                    db.collection(CONVERSATIONS_COLLECTION)
-                            .document(conversationId)
-                            .update("lastMessage", text, "lastMessageTime", timestamp)
-                            .addOnSuccessListener(aVoid -> callback.onSuccess())
-                            .addOnFailureListener(callback::onError);
-                })
+        for (Message message : messages) {
+            batch.set(conversationRef.collection(MESSAGES_COLLECTION).document(message.getId()),
+                    MessageMapper.toMap(message));
+        }
+
+        // The summary shows the newest message of the batch
+        Message last = messages.get(messages.size() - 1);
+        batch.update(conversationRef, "lastMessage", last.getText(), "lastMessageTime", last.getTimestamp(),
+                "lastMessageAt", new Timestamp(new Date(last.getSentAt())));
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(callback::onError);
     }
 
-    // Listen to messages (uses orderBy on single field - no index needed)
-    public static ListenerRegistration listenToMessages(String conversationId, MessagesCallback callback) {
+    // Listen to the newest windowSize messages (uses orderBy on single field - no index needed).
+    // After the first snapshot only the changed documents are converted.
+    public static ListenerRegistration listenToMessages(String conversationId, int windowSize,
+                                                        MessageChangesCallback callback) {
+        return listenToMessages(messagesQuery(conversationId).limitToLast(windowSize), callback);
+    }
+
+    // Listen to every message from the given one on, for re-attaching without losing what is shown
+    public static ListenerRegistration listenToMessagesFrom(String conversationId, DocumentSnapshot first,
+                                                            MessageChangesCallback callback) {
+        return listenToMessages(messagesQuery(conversationId).startAt(first), callback);
+    }
+
+    private static Query messagesQuery(String conversationId) {
         return db.collection(CONVERSATIONS_COLLECTION)
                 .document(conversationId)
                 .collection(MESSAGES_COLLECTION)
-                .orderBy("timestamp", Query.Direction.ASCENDING)
-                .addSnapshotListener((queryDocumentSnapshots, e) -> {
-                    if (e != null) {
-                        callback.onError(e);
-                        return;
-                    }
-
-                    List<Message> messages = new ArrayList<>();
-                    if (queryDocumentSnapshots != null) {
-                        for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                            Message message = documentToMessage(document);
-                            messages.add(message);
-                        }
-                    }
-                    callback.onSuccess(messages);
-                });
+                .orderBy("timestamp", Query.Direction.ASCENDING);
     }
 
-    // Helper: Sort conversations by date descending
-    private static void sortConversationsByDateDesc(List<Conversation> conversations) {
-        Collections.sort(conversations, (c1, c2) -> {
-            String date1 = c1.getLastMessageTime();
-            String date2 = c2.getLastMessageTime();
-            if (date1 == null) date1 = "";
-            if (date2 == null) date2 = "";
-            return date2.compareTo(date1); // Descending
+    private static ListenerRegistration listenToMessages(Query query, MessageChangesCallback callback) {
+        final boolean[] initial = {true};
+        return query.addSnapshotListener((queryDocumentSnapshots, e) -> {
+            if (e != null) {
+                callback.onError(e);
+                return;
+            }
+            if (queryDocumentSnapshots == null) return;
+
+            if (initial[0]) {
+                initial[0] = false;
+                List<Message> messages = new ArrayList<>(queryDocumentSnapshots.size());
+                for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                    messages.add(MessageMapper.fromDocument(document));
+                }
+                DocumentSnapshot oldest = queryDocumentSnapshots.isEmpty()
+                        ? null : queryDocumentSnapshots.getDocuments().get(0);
+                callback.onInitial(messages, oldest);
+                return;
+            }
+
+            List<DocumentChange> documentChanges = queryDocumentSnapshots.getDocumentChanges();
+            if (documentChanges.isEmpty()) return;
+
+            List<MessageChange> changes = new ArrayList<>(documentChanges.size());
+            for (DocumentChange change : documentChanges) {
+                changes.add(documentChangeToMessageChange(change));
+            }
+            callback.onChanges(changes);
         });
     }
 
+    // Get the page of messages just older than the cursor, oldest first
+    public static void getMessagesBefore(String conversationId, DocumentSnapshot cursor, int pageSize,
+                                         MessagesPageCallback callback) {
+        messagesQuery(conversationId)
+                .endBefore(cursor)
+                .limitToLast(pageSize)
+                .get()
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    List<Message> messages = new ArrayList<>(queryDocumentSnapshots.size());
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        messages.add(MessageMapper.fromDocument(document));
+                    }
+                    DocumentSnapshot oldest = queryDocumentSnapshots.isEmpty()
+                            ? null : queryDocumentSnapshots.getDocuments().get(0);
+                    callback.onSuccess(messages, oldest, messages.size() == pageSize);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
     private static Map<String, String> createParticipantNamesMap(String user1Id, String user1Name, String user2Id, String user2Name) {
         Map<String, String> names = new HashMap<>();
         names.put(user1Id, user1Name);
@@ -198,31 +357,25 @@ public class ChatRepository {
         return names;
     }
 
-    private static String getCurrentTimestamp() {
-        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return isoFormat.format(new Date());
+    public static String getCurrentTimestamp() {
+        return Timestamps.nowIso();
     }
 
-    private static Conversation documentToConversation(DocumentSnapshot document) {
-        Conversation conversation = new Conversation();
-        conversation.setId(document.getId());
-        conversation.setParticipants((List<String>) document.get("participants"));
-        conversation.setParticipantNames((Map<String, String>) document.get("participantNames"));
-        conversation.setItemId(document.getString("itemId"));
-        conversation.setItemName(document.getString("itemName"));
-        conversation.setLastMessage(document.getString("lastMessage"));
-        conversation.setLastMessageTime(document.getString("lastMessageTime"));
-        return conversation;
+    private static MessageChange documentChangeToMessageChange(DocumentChange change) {
+        MessageChange.Type type;
+        switch (change.getType()) {
+            case ADDED:
+                type = MessageChange.Type.ADDED;
+                break;
+            case MODIFIED:
+                type = MessageChange.Type.MODIFIED;
+                break;
+            default:
+                type = MessageChange.Type.REMOVED;
+                break;
+        }
+        return new MessageChange(type, MessageMapper.fromDocument(change.getDocument()),
+                change.getOldIndex(), change.getNewIndex());
     }
 
-    private static Message documentToMessage(DocumentSnapshot document) {
-        Message message = new Message();
-        message.setId(document.getId());
-        message.setSenderId(document.getString("senderId"));
-        message.setSenderName(document.getString("senderName"));
-        message.setText(document.getString("text"));
-        message.setTimestamp(document.getString("timestamp"));
-        return message;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,296 @@
+package com.example.back2me;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+
+/**
+ * Uploads a file in chunks using Cloudinary's resumable protocol: every
+ * chunk is its own multipart POST carrying the same X-Unique-Upload-Id
+ * and a Content-Range giving its place in the file, and the response to
+ * the last chunk describes the finished upload.
+ *
+ * A failed chunk is retried on its own with exponential backoff, so a
+ * dropped connection costs one chunk rather than the whole file. When the
+ * attempts run out the upload can be resumed later from
+ * {@link #getBytesConfirmed()} with the same upload ID. Blocking; call off
+ * the main thread.
+ *
+ * Files no bigger than one chunk go in a single request, so neither the
+ * per-chunk retry nor resuming saves anything for them. That is every
+ * photo at the current {@link ImageEncoder#DEFAULT_MAX_BYTES} cap.
+ */
+public class ChunkedUploader {
+
+    // Cloudinary needs every chunk but the last to be at least this big
+    public static final int MIN_CHUNK_SIZE = 5 * 1024 * 1024;
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    public static final long DEFAULT_INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    // Progress is reported at most once per this many bytes written
+    private static final int PROGRESS_STEP = 16 * 1024;
+
+    public interface ProgressListener {
+        // Bytes of the file sent so far; moves back when a chunk is retried
+        void onProgress(long bytesSent, long totalBytes);
+    }
+
+    /**
+     * A chunk the server refused outright, e.g. for a bad preset. Not
+     * retried.
+     */
+    public static class RejectedException extends IOException {
+        private final int code;
+
+        public RejectedException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private final OkHttpClient client;
+    private final String url;
+    private final Map<String, String> formFields;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+
+    private volatile boolean cancelled = false;
+    private volatile Call currentCall;
+    private volatile long bytesConfirmed = 0;
+
+    public ChunkedUploader(OkHttpClient client, String url, Map<String, String> formFields) {
+        this(client, url, formFields, MIN_CHUNK_SIZE, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MS);
+    }
+
+    public ChunkedUploader(OkHttpClient client, String url, Map<String, String> formFields,
+                           int chunkSize, int maxAttempts, long initialBackoffMs) {
+        if (chunkSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("chunkSize and maxAttempts must be positive");
+        }
+        this.client = client;
+        this.url = url;
+        this.formFields = new LinkedHashMap<>(formFields);
+        this.chunkSize = chunkSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+    }
+
+    // Bytes from the start of the file the server has acknowledged
+    public long getBytesConfirmed() {
+        return bytesConfirmed;
+    }
+
+    // Stop after the current request; upload() then throws
+    public void cancel() {
+        cancelled = true;
+        Call call = currentCall;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Upload {@code file} from {@code startOffset}, which is 0 for a new
+     * upload or the confirmed byte count of an earlier attempt with the
+     * same {@code uploadId}.
+     *
+     * @return the parsed response to the last chunk
+     * @throws RejectedException if the server refused a chunk
+     * @throws IOException if a chunk still failed after every attempt, or on cancel
+     */
+    public JsonObject upload(File file, String fileName, String mimeType, String uploadId,
+                             long startOffset, ProgressListener listener) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            return upload(in.length(), (offset, length) -> {
+                byte[] chunk = new byte[length];
+                in.seek(offset);
+                in.readFully(chunk);
+                return chunk;
+            }, fileName, mimeType, uploadId, startOffset, listener);
+        }
+    }
+
+    // Same as the file version, for an image already in memory
+    public JsonObject upload(byte[] data, String fileName, String mimeType, String uploadId,
+                             long startOffset, ProgressListener listener) throws IOException {
+        return upload(data.length,
+                (offset, length) -> Arrays.copyOfRange(data, (int) offset, (int) offset + length),
+                fileName, mimeType, uploadId, startOffset, listener);
+    }
+
+    private interface ChunkSource {
+        byte[] read(long offset, int length) throws IOException;
+    }
+
+    private JsonObject upload(long total, ChunkSource source, String fileName, String mimeType,
+                              String uploadId, long startOffset, ProgressListener listener) throws IOException {
+        if (total == 0) {
+            throw new IOException("Nothing to upload");
+        }
+        if (startOffset < 0 || startOffset >= total) {
+            throw new IllegalArgumentException("startOffset " + startOffset + " outside 0.." + (total - 1));
+        }
+        MediaType mediaType = MediaType.parse(mimeType);
+        bytesConfirmed = startOffset;
+
+        JsonObject last = null;
+        long offset = startOffset;
+        while (offset < total) {
+            int length = (int) Math.min(chunkSize, total - offset);
+            byte[] chunk = source.read(offset, length);
+
+            last = sendWithRetry(chunk, offset, total, fileName, mediaType, uploadId, listener);
+            offset += length;
+            bytesConfirmed = offset;
+            if (listener != null) {
+                listener.onProgress(offset, total);
+            }
+        }
+        return last;
+    }
+
+    private JsonObject sendWithRetry(byte[] chunk, long offset, long total, String fileName,
+                                     MediaType mediaType, String uploadId,
+                                     ProgressListener listener) throws IOException {
+        IOException failure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            checkCancelled();
+            try {
+                return send(chunk, offset, total, fileName, mediaType, uploadId, listener);
+            } catch (RejectedException e) {
+                throw e;
+            } catch (IOException e) {
+                checkCancelled();
+                failure = e;
+            }
+            if (attempt < maxAttempts) {
+                sleep(Math.min(initialBackoffMs << (attempt - 1), MAX_BACKOFF_MS));
+            }
+        }
+        throw failure;
+    }
+
+    private JsonObject send(byte[] chunk, long offset, long total, String fileName, MediaType mediaType,
+                            String uploadId, ProgressListener listener) throws IOException {
+        MultipartBody.Builder body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("file", fileName, new ChunkBody(chunk, mediaType, offset, total, listener));
+        for (Map.Entry<String, String> field : formFields.entrySet()) {
+            body.addFormDataPart(field.getKey(), field.getValue());
+        }
+
+        long end = offset + chunk.length - 1;
+        Request request = new Request.Builder()
+                .url(url)
+                .header("X-Unique-Upload-Id", uploadId)
+                .header("Content-Range", "bytes " + offset + "-" + end + "/" + total)
+                .post(body.build())
+                .build();
+
+        Call call = client.newCall(request);
+        currentCall = call;
+        try (Response response = call.execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (response.isSuccessful()) {
+                return parse(responseBody);
+            }
+            // Server trouble and throttling are worth another try; anything else won't change
+            if (response.code() >= 500 || response.code() == 429 || response.code() == 408) {
+                throw new IOException("Server returned " + response.code());
+            }
+            throw new RejectedException(response.code(), "Server returned " + response.code() + " - " + responseBody);
+        } finally {
+            currentCall = null;
+        }
+    }
+
+    private static JsonObject parse(String body) throws IOException {
+        try {
+            JsonElement json = JsonParser.parseString(body);
+            if (!json.isJsonObject()) {
+                throw new IOException("Unexpected response: " + body);
+            }
+            return json.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IOException("Unexpected response: " + body, e);
+        }
+    }
+
+    private void checkCancelled() throws IOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Upload cancelled");
+        }
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        }
+    }
+
+    // One chunk's bytes, reporting progress through the whole file as they are written
+    private static final class ChunkBody extends RequestBody {
+        private final byte[] bytes;
+        private final MediaType mediaType;
+        private final long offset;
+        private final long total;
+        private final ProgressListener listener;
+
+        ChunkBody(byte[] bytes, MediaType mediaType, long offset, long total, ProgressListener listener) {
+            this.bytes = bytes;
+            this.mediaType = mediaType;
+            this.offset = offset;
+            this.total = total;
+            this.listener = listener;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return mediaType;
+        }
+
+        @Override
+        public long contentLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            for (int written = 0; written < bytes.length; ) {
+                int count = Math.min(PROGRESS_STEP, bytes.length - written);
+                sink.write(bytes, written, count);
+                written += count;
+                if (listener != null && written < bytes.length) {
+                    listener.onProgress(offset + written, total);
+                }
+            }
+        }
+    }
+}
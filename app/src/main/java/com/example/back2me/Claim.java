@@ -1,6 +1,12 @@
 package com.example.back2me;
 
+import com.example.back2me.mapper.DocumentId;
+import com.example.back2me.mapper.EpochMillis;
+import com.example.back2me.mapper.FirestoreDocument;
+
+@FirestoreDocument
 public class Claim {
+    @DocumentId(stored = true)
     private String id;
     private String itemId;
     private String itemName;
@@ -12,6 +18,8 @@ public class Claim {
     private String status;             // "pending", "approved", "rejected"
     private String createdDate;
     private String itemStatus;         // "lost" or "found" - to show appropriate text
+    @EpochMillis
+    private long createdAt;            // createdDate as epoch millis
 
     // Empty constructor required for Firestore
     public Claim() {
@@ -43,6 +51,7 @@ public class Claim {
         this.status = status;
         this.createdDate = createdDate;
         this.itemStatus = itemStatus;
+        this.createdAt = Timestamps.parseIso(createdDate);
     }
 
     // Constructor without ID (for creating new claims)
@@ -59,6 +68,7 @@ public class Claim {
         this.status = "pending";
         this.createdDate = createdDate;
         this.itemStatus = itemStatus;
+        this.createdAt = Timestamps.parseIso(createdDate);
     }
 
     // Getters
@@ -73,6 +83,7 @@ public class Claim {
     public String getStatus() { return status; }
     public String getCreatedDate() { return createdDate; }
     public String getItemStatus() { return itemStatus; }
+    public long getCreatedAt() { return createdAt; }
 
     // Setters
     public void setId(String id) { this.id = id; }
@@ -84,12 +95,18 @@ public class Claim {
     public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
     public void setMessage(String message) { this.message = message; }
     public void setStatus(String status) { this.status = status; }
-    public void setCreatedDate(String createdDate) { this.createdDate = createdDate; }
+    public void setCreatedDate(String createdDate) {
+        this.createdDate = createdDate;
+        this.createdAt = Timestamps.parseIso(createdDate);
+    }
     public void setItemStatus(String itemStatus) { this.itemStatus = itemStatus; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
 
     // Copy with new ID
     public Claim copyWithId(String newId) {
-        return new Claim(newId, itemId, itemName, claimerId, claimerEmail, 
-                         claimerName, ownerId, message, status, createdDate, itemStatus);
+        Claim copy = new Claim(newId, itemId, itemName, claimerId, claimerEmail,
+                               claimerName, ownerId, message, status, createdDate, itemStatus);
+        copy.createdAt = createdAt;
+        return copy;
     }
 }
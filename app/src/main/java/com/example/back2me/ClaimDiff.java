@@ -0,0 +1,37 @@
+package com.example.back2me;
+
+import java.util.Objects;
+
+/**
+ * Content comparison shared by the adapters that show {@link Claim} rows.
+ */
+public final class ClaimDiff {
+
+    // Payload for a row whose status is the only thing that changed
+    public static final Object PAYLOAD_STATUS = "status";
+
+    private ClaimDiff() {
+    }
+
+    public static boolean contentsTheSame(Claim oldClaim, Claim newClaim) {
+        return Objects.equals(oldClaim.getStatus(), newClaim.getStatus())
+                && sameExceptStatus(oldClaim, newClaim);
+    }
+
+    public static Object changePayload(Claim oldClaim, Claim newClaim) {
+        if (!Objects.equals(oldClaim.getStatus(), newClaim.getStatus())
+                && sameExceptStatus(oldClaim, newClaim)) {
+            return PAYLOAD_STATUS;
+        }
+        return null;
+    }
+
+    private static boolean sameExceptStatus(Claim oldClaim, Claim newClaim) {
+        return Objects.equals(oldClaim.getItemName(), newClaim.getItemName())
+                && Objects.equals(oldClaim.getItemStatus(), newClaim.getItemStatus())
+                && Objects.equals(oldClaim.getClaimerName(), newClaim.getClaimerName())
+                && Objects.equals(oldClaim.getClaimerEmail(), newClaim.getClaimerEmail())
+                && Objects.equals(oldClaim.getMessage(), newClaim.getMessage())
+                && oldClaim.getCreatedAt() == newClaim.getCreatedAt();
+    }
+}
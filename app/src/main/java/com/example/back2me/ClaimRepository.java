@@ -1,18 +1,26 @@
 package com.example.back2me;
 
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ClaimRepository {
 
+    private static final String TAG = "ClaimRepository";
     private static final String COLLECTION_NAME = "claims";
+    private static final String ITEMS_COLLECTION = "items";
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
 
     // Callback interfaces
@@ -31,68 +39,98 @@ public class ClaimRepository {
         void onError(Exception e);
     }
 
-    // Get claims by item (sorted locally to avoid index requirement)
+    // Get claims by item (sorted locally to avoid index requirement); may call back twice, see loadMirrored
     public static void getClaimsByItem(String itemId, ClaimsCallback callback) {
-        db.collection(COLLECTION_NAME)
-                .whereEqualTo("itemId", itemId)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Claim> claims = new ArrayList<>();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Claim claim = documentToClaim(document);
-                        claims.add(claim);
-                    }
-                    // Sort locally by createdDate descending
-                    sortClaimsByDateDesc(claims);
-                    callback.onSuccess(claims);
-                })
-                .addOnFailureListener(callback::onError);
+        loadMirrored(db.collection(COLLECTION_NAME).whereEqualTo("itemId", itemId),
+                LocalStore.CLAIM_ITEM_ID, itemId, callback);
     }
 
-    // Get claims by claimer (sorted locally)
+    // Get claims by claimer (sorted locally); may call back twice, see loadMirrored
     public static void getClaimsByClaimer(String claimerId, ClaimsCallback callback) {
-        db.collection(COLLECTION_NAME)
-                .whereEqualTo("claimerId", claimerId)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Claim> claims = new ArrayList<>();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Claim claim = documentToClaim(document);
-                        claims.add(claim);
-                    }
-                    // Sort locally
-                    sortClaimsByDateDesc(claims);
-                    callback.onSuccess(claims);
-                })
-                .addOnFailureListener(callback::onError);
+        loadMirrored(db.collection(COLLECTION_NAME).whereEqualTo("claimerId", claimerId),
+                LocalStore.CLAIM_CLAIMER_ID, claimerId, callback);
     }
 
-    // Get claims by owner (sorted locally)
+    // Get claims by owner (sorted locally); may call back twice, see loadMirrored
     public static void getClaimsByOwner(String ownerId, ClaimsCallback callback) {
-        db.collection(COLLECTION_NAME)
-                .whereEqualTo("ownerId", ownerId)
-                .get()
+        loadMirrored(db.collection(COLLECTION_NAME).whereEqualTo("ownerId", ownerId),
+                LocalStore.CLAIM_OWNER_ID, ownerId, callback);
+    }
+
+    /**
+     * Answer from the local mirror's rows matching {@code column}, if any,
+     * then run {@code query} and replace those rows with its result. With
+     * the mirror filled the callback is called twice. A failed refresh after
+     * a cached answer is only logged, so the screen keeps working offline.
+     */
+    private static void loadMirrored(Query query, String column, String value, ClaimsCallback callback) {
+        LocalStore store = LocalStore.getInstance();
+        if (store == null) {
+            fetchMirrored(query, column, value, null, callback);
+            return;
+        }
+
+        store.queryClaims(column, value, cached -> {
+            if (!cached.isEmpty()) {
+                callback.onSuccess(cached);
+            }
+            fetchMirrored(query, column, value, cached, callback);
+        });
+    }
+
+    private static void fetchMirrored(Query query, String column, String value, List<Claim> cached,
+                                      ClaimsCallback callback) {
+        query.get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     List<Claim> claims = new ArrayList<>();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Claim claim = documentToClaim(document);
+                        Claim claim = ClaimMapper.fromDocument(document);
                         claims.add(claim);
                     }
-                    // Sort locally
+                    // Sort locally by createdDate descending
                     sortClaimsByDateDesc(claims);
+
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.replaceClaims(column, value, claims);
+                    }
                     callback.onSuccess(claims);
                 })
-                .addOnFailureListener(callback::onError);
+                .addOnFailureListener(e -> {
+                    if (cached != null && !cached.isEmpty()) {
+                        Log.w(TAG, "Refresh failed, keeping " + cached.size() + " stored claims", e);
+                    } else {
+                        callback.onError(e);
+                    }
+                });
     }
 
-    // Create claim
+    /**
+     * Create claim. The write is a transaction guarded on the item, so a
+     * claim can't land on an item that was resolved after the screen loaded
+     * it, where nothing would ever reject it.
+     */
     public static void createClaim(Claim claim, OperationCallback callback) {
-        Map<String, Object> claimData = claimToMap(claim);
-
-        db.collection(COLLECTION_NAME)
-                .add(claimData)
-                .addOnSuccessListener(documentReference -> {
-                    documentReference.update("id", documentReference.getId());
+        // Pick the ID up front so the document, id field included, is written once
+        DocumentReference documentReference = db.collection(COLLECTION_NAME).document();
+        DocumentReference itemRef = db.collection(ITEMS_COLLECTION).document(claim.getItemId());
+        Claim created = claim.copyWithId(documentReference.getId());
+        Map<String, Object> claimData = ClaimMapper.toMap(created);
+
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot item = transaction.get(itemRef);
+                    if (!item.exists() || "resolved".equals(item.getString("status"))) {
+                        throw new FirebaseFirestoreException("Item is already resolved",
+                                FirebaseFirestoreException.Code.ABORTED);
+                    }
+                    transaction.set(documentReference, claimData);
+                    return null;
+                })
+                .addOnSuccessListener(result -> {
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.putClaim(created);
+                    }
                     callback.onSuccess();
                 })
                 .addOnFailureListener(callback::onError);
@@ -103,60 +141,113 @@ public class ClaimRepository {
         db.collection(COLLECTION_NAME)
                 .document(claimId)
                 .update("status", status)
-                .addOnSuccessListener(aVoid -> callback.onSuccess())
+                .addOnSuccessListener(aVoid -> {
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.updateClaimStatus(claimId, status);
+                    }
+                    callback.onSuccess();
+                })
                 .addOnFailureListener(callback::onError);
     }
 
+    /**
+     * Approve a claim and resolve its item. The transaction reads only the
+     * item and the chosen claim: it aborts if the item is already resolved
+     * or the claim is no longer pending, and otherwise approves the claim
+     * and patches the item's status in one commit. The other pending claims
+     * are rejected afterwards in one batch; no claim can be added to the
+     * item once it is resolved, see createClaim.
+     */
+    public static void approveClaim(Claim claim, OperationCallback callback) {
+        DocumentReference itemRef = db.collection(ITEMS_COLLECTION).document(claim.getItemId());
+        DocumentReference claimRef = db.collection(COLLECTION_NAME).document(claim.getId());
+
+        db.runTransaction(transaction -> {
+                    // All reads before any write
+                    DocumentSnapshot item = transaction.get(itemRef);
+                    DocumentSnapshot current = transaction.get(claimRef);
+                    if (!item.exists() || "resolved".equals(item.getString("status"))) {
+                        throw new FirebaseFirestoreException("Item is already resolved",
+                                FirebaseFirestoreException.Code.ABORTED);
+                    }
+                    if (!current.exists() || !"pending".equals(current.getString("status"))) {
+                        throw new FirebaseFirestoreException("Claim is no longer pending",
+                                FirebaseFirestoreException.Code.ABORTED);
+                    }
+
+                    transaction.update(claimRef, "status", "approved");
+                    transaction.update(itemRef, "status", "resolved");
+                    return null;
+                })
+                .addOnSuccessListener(result -> {
+                    ItemSearchIndex.getInstance().updateStatus(claim.getItemId(), "resolved");
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.updateClaimStatus(claim.getId(), "approved");
+                        store.updateItemStatus(claim.getItemId(), "resolved");
+                    }
+                    rejectPendingClaims(claim.getItemId(), callback);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    // Reject the claims still pending on a resolved item. The approval has
+    // already committed, so a failure here is only logged.
+    private static void rejectPendingClaims(String itemId, OperationCallback callback) {
+        db.collection(COLLECTION_NAME)
+                .whereEqualTo("itemId", itemId)
+                .whereEqualTo("status", "pending")
+                .get(Source.SERVER)
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    if (queryDocumentSnapshots.isEmpty()) {
+                        callback.onSuccess();
+                        return;
+                    }
+                    WriteBatch batch = db.batch();
+                    List<String> rejectedIds = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        batch.update(document.getReference(), "status", "rejected");
+                        rejectedIds.add(document.getId());
+                    }
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                LocalStore store = LocalStore.getInstance();
+                                if (store != null) {
+                                    for (String rejectedId : rejectedIds) {
+                                        store.updateClaimStatus(rejectedId, "rejected");
+                                    }
+                                }
+                                callback.onSuccess();
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.w(TAG, "Could not reject other claims on item " + itemId, e);
+                                callback.onSuccess();
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not load other claims on item " + itemId, e);
+                    callback.onSuccess();
+                });
+    }
+
     // Delete claim
     public static void deleteClaim(String claimId, OperationCallback callback) {
         db.collection(COLLECTION_NAME)
                 .document(claimId)
                 .delete()
-                .addOnSuccessListener(aVoid -> callback.onSuccess())
+                .addOnSuccessListener(aVoid -> {
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.deleteClaim(claimId);
+                    }
+                    callback.onSuccess();
+                })
                 .addOnFailureListener(callback::onError);
     }
 
     // Helper: Sort claims by date descending
     private static void sortClaimsByDateDesc(List<Claim> claims) {
-        Collections.sort(claims, (c1, c2) -> {
-            String date1 = c1.getCreatedDate();
-            String date2 = c2.getCreatedDate();
-            if (date1 == null) date1 = "";
-            if (date2 == null) date2 = "";
-            return date2.compareTo(date1); // Descending
-        });
-    }
-
-    // Helper methods
-    private static Claim documentToClaim(DocumentSnapshot document) {
-        Claim claim = new Claim();
-        claim.setId(document.getId());
-        claim.setItemId(document.getString("itemId"));
-        claim.setItemName(document.getString("itemName"));
-        claim.setItemStatus(document.getString("itemStatus"));
-        claim.setClaimerId(document.getString("claimerId"));
-        claim.setClaimerName(document.getString("claimerName"));
-        claim.setClaimerEmail(document.getString("claimerEmail"));
-        claim.setOwnerId(document.getString("ownerId"));
-        claim.setMessage(document.getString("message"));
-        claim.setStatus(document.getString("status"));
-        claim.setCreatedDate(document.getString("createdDate"));
-        return claim;
-    }
-
-    private static Map<String, Object> claimToMap(Claim claim) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", claim.getId());
-        map.put("itemId", claim.getItemId());
-        map.put("itemName", claim.getItemName());
-        map.put("itemStatus", claim.getItemStatus());
-        map.put("claimerId", claim.getClaimerId());
-        map.put("claimerName", claim.getClaimerName());
-        map.put("claimerEmail", claim.getClaimerEmail());
-        map.put("ownerId", claim.getOwnerId());
-        map.put("message", claim.getMessage());
-        map.put("status", claim.getStatus());
-        map.put("createdDate", claim.getCreatedDate());
-        return map;
+        Collections.sort(claims, (c1, c2) -> Long.compare(c2.getCreatedAt(), c1.getCreatedAt()));
     }
 }
\ No newline at end of file
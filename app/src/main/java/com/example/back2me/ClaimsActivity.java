@@ -56,7 +56,7 @@ public class ClaimsActivity extends AppCompatActivity implements ClaimsAdapter.O
     }
 
     private void setupRecyclerView() {
-        adapter = new ClaimsAdapter(claims, this);
+        adapter = new ClaimsAdapter(this);
         binding.recyclerClaims.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerClaims.setAdapter(adapter);
     }
@@ -72,7 +72,7 @@ public class ClaimsActivity extends AppCompatActivity implements ClaimsAdapter.O
 
                 claims.clear();
                 claims.addAll(claimsList);
-                adapter.notifyDataSetChanged();
+                adapter.submitList(new ArrayList<>(claims));
 
                 updateEmptyState();
 
@@ -145,54 +145,25 @@ public class ClaimsActivity extends AppCompatActivity implements ClaimsAdapter.O
     private void approveClaim(Claim claim) {
         binding.progressBar.setVisibility(View.VISIBLE);
 
-        ClaimRepository.updateClaimStatus(claim.getId(), "approved",
-                new ClaimRepository.OperationCallback() {
-                    @Override
-                    public void onSuccess() {
-                        // Update item status to resolved
-                        ItemRepository.getItemById(itemId, new ItemRepository.SingleItemCallback() {
-                            @Override
-                            public void onSuccess(Item item) {
-                                item.setStatus("resolved");
-                                ItemRepository.updateItem(item, new ItemRepository.UpdateCallback() {
-                                    @Override
-                                    public void onSuccess() {
-                                        binding.progressBar.setVisibility(View.GONE);
-                                        Toast.makeText(ClaimsActivity.this,
-                                                "Claim approved! Item marked as resolved.",
-                                                Toast.LENGTH_SHORT).show();
-                                        loadClaims();
-                                    }
-
-                                    @Override
-                                    public void onError(Exception e) {
-                                        binding.progressBar.setVisibility(View.GONE);
-                                        Toast.makeText(ClaimsActivity.this,
-                                                "Claim approved but failed to update item",
-                                                Toast.LENGTH_SHORT).show();
-                                        loadClaims();
-                                    }
-                                });
-                            }
-
-                            @Override
-                            public void onError(Exception e) {
-                                binding.progressBar.setVisibility(View.GONE);
-                                Toast.makeText(ClaimsActivity.this,
-                                        "Claim approved!", Toast.LENGTH_SHORT).show();
-                                loadClaims();
-                            }
-                        });
-                    }
+        // Approves the claim, rejects the other pending ones and resolves the item together
+        ClaimRepository.approveClaim(claim, new ClaimRepository.OperationCallback() {
+            @Override
+            public void onSuccess() {
+                binding.progressBar.setVisibility(View.GONE);
+                Toast.makeText(ClaimsActivity.this,
+                        "Claim approved! Item marked as resolved.",
+                        Toast.LENGTH_SHORT).show();
+                loadClaims();
+            }
 
-                    @Override
-                    public void onError(Exception e) {
-                        binding.progressBar.setVisibility(View.GONE);
-                        Toast.makeText(ClaimsActivity.this,
-                                "Failed to approve claim: " + e.getMessage(),
-                                Toast.LENGTH_LONG).show();
-                    }
-                });
+            @Override
+            public void onError(Exception e) {
+                binding.progressBar.setVisibility(View.GONE);
+                Toast.makeText(ClaimsActivity.this,
+                        "Failed to approve claim: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     private void rejectClaim(Claim claim) {
@@ -13,20 +13,12 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
-public class ClaimsAdapter extends RecyclerView.Adapter<ClaimsAdapter.ClaimViewHolder> {
+public class ClaimsAdapter extends DiffListAdapter<Claim, ClaimsAdapter.ClaimViewHolder> {
 
-    private final List<Claim> claims;
     private final OnClaimActionListener listener;
 
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM d, yyyy 'at' hh:mm a", Locale.getDefault());
-    private final SimpleDateFormat isoFormat;
 
     // Action listener interface
     public interface OnClaimActionListener {
@@ -35,12 +27,8 @@ public class ClaimsAdapter extends RecyclerView.Adapter<ClaimsAdapter.ClaimViewH
         void onContactClick(Claim claim);
     }
 
-    public ClaimsAdapter(List<Claim> claims, OnClaimActionListener listener) {
-        this.claims = claims;
+    public ClaimsAdapter(OnClaimActionListener listener) {
         this.listener = listener;
-
-        isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
 
     @NonNull
@@ -51,9 +39,33 @@ public class ClaimsAdapter extends RecyclerView.Adapter<ClaimsAdapter.ClaimViewH
         return new ClaimViewHolder(view);
     }
 
+    @Override
+    protected String getItemKey(Claim claim) {
+        return claim.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(Claim oldClaim, Claim newClaim) {
+        return ClaimDiff.contentsTheSame(oldClaim, newClaim);
+    }
+
+    @Override
+    protected Object getChangePayload(Claim oldClaim, Claim newClaim) {
+        return ClaimDiff.changePayload(oldClaim, newClaim);
+    }
+
+    @Override
+    protected void onBindPayloads(@NonNull ClaimViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(ClaimDiff.PAYLOAD_STATUS)) {
+            bindStatus(holder, getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ClaimViewHolder holder, int position) {
-        Claim claim = claims.get(position);
+        Claim claim = getItem(position);
 
         // Set claimer name
         holder.textClaimerName.setText(claim.getClaimerName());
@@ -72,6 +84,27 @@ public class ClaimsAdapter extends RecyclerView.Adapter<ClaimsAdapter.ClaimViewH
         }
 
         // Set status chip
+        bindStatus(holder, claim);
+
+        // Format date
+        long createdAt = claim.getCreatedAt();
+        holder.textDate.setText(createdAt > 0 ? Timestamps.formatDateTime(createdAt) : "N/A");
+
+        // Click listeners
+        holder.buttonApprove.setOnClickListener(v -> {
+            if (listener != null) listener.onApproveClick(claim);
+        });
+
+        holder.buttonReject.setOnClickListener(v -> {
+            if (listener != null) listener.onRejectClick(claim);
+        });
+
+        holder.buttonContact.setOnClickListener(v -> {
+            if (listener != null) listener.onContactClick(claim);
+        });
+    }
+
+    private void bindStatus(ClaimViewHolder holder, Claim claim) {
         String status = claim.getStatus().toLowerCase();
         switch (status) {
             case "pending":
@@ -93,36 +126,6 @@ public class ClaimsAdapter extends RecyclerView.Adapter<ClaimsAdapter.ClaimViewH
                 holder.chipStatus.setText(claim.getStatus());
                 break;
         }
-
-        // Format date
-        try {
-            Date date = isoFormat.parse(claim.getCreatedDate());
-            if (date != null) {
-                holder.textDate.setText(dateFormat.format(date));
-            } else {
-                holder.textDate.setText("N/A");
-            }
-        } catch (ParseException e) {
-            holder.textDate.setText("N/A");
-        }
-
-        // Click listeners
-        holder.buttonApprove.setOnClickListener(v -> {
-            if (listener != null) listener.onApproveClick(claim);
-        });
-
-        holder.buttonReject.setOnClickListener(v -> {
-            if (listener != null) listener.onRejectClick(claim);
-        });
-
-        holder.buttonContact.setOnClickListener(v -> {
-            if (listener != null) listener.onContactClick(claim);
-        });
-    }
-
-    @Override
-    public int getItemCount() {
-        return claims.size();
     }
 
     public static class ClaimViewHolder extends RecyclerView.ViewHolder {
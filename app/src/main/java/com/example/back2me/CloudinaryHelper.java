@@ -3,24 +3,39 @@ package com.example.back2me;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.MultipartBody;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import com.google.gson.JsonObject;
 
-import org.json.JSONObject;
+import okhttp3.OkHttpClient;
 
+/**
+ * Image uploads to Cloudinary.
+ *
+ * Decoding, encoding and sending run on a small bounded pool, never on the
+ * caller's thread, and callbacks are delivered on the main thread. Each
+ * upload returns an {@link Upload} handle; cancelling it stops the encode
+ * or the request and suppresses the callback, so an activity can drop its
+ * upload when it finishes.
+ *
+ * Images go up through {@link ChunkedUploader}, so a dropped connection
+ * is retried with backoff instead of failing the upload.
+ */
 public class CloudinaryHelper {
 
     private static final String TAG = "CloudinaryHelper";
@@ -33,99 +48,259 @@ public class CloudinaryHelper {
 
     private static final String UPLOAD_URL = "https://api.cloudinary.com/v1_1/" + CLOUD_NAME + "/image/upload";
 
+    // Longest edge of an uploaded gallery image unless the caller asks otherwise
+    public static final int DEFAULT_MAX_EDGE_PX = 1600;
+
+    // Gallery images are encoded here before upload and deleted afterwards
+    private static final String UPLOAD_DIRECTORY = "uploads";
+
+    // Images being prepared or sent at once, and waiting to be
+    private static final int IMAGE_THREADS = 2;
+    private static final int MAX_QUEUED_IMAGES = 4;
+
     private static final OkHttpClient client = new OkHttpClient();
+    private static final ThreadPoolExecutor imageExecutor = new ThreadPoolExecutor(
+            IMAGE_THREADS, IMAGE_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(MAX_QUEUED_IMAGES));
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    static {
+        imageExecutor.allowCoreThreadTimeOut(true);
+    }
 
+    // All methods are called on the main thread
     public interface UploadCallback {
         void onSuccess(String imageUrl);
         void onError(String errorMessage);
+
+        // Bytes of the encoded image sent so far
+        default void onProgress(long bytesSent, long totalBytes) {
+        }
     }
 
     /**
-     * Upload bitmap (from camera) to Cloudinary
+     * A running upload. Cancelling interrupts whichever stage it is in; no
+     * callback is delivered afterwards.
      */
-    public static void uploadBitmap(Bitmap bitmap, UploadCallback callback) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos);
-        byte[] imageBytes = baos.toByteArray();
+    public static final class Upload {
+        private boolean cancelled = false;
+        private Future<?> work;
+        private ChunkedUploader uploader;
+
+        public synchronized void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            if (work != null) {
+                work.cancel(true);
+            }
+            if (uploader != null) {
+                uploader.cancel();
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        private synchronized void setWork(Future<?> work) {
+            this.work = work;
+            if (cancelled) {
+                work.cancel(true);
+            }
+        }
 
-        uploadBytes(imageBytes, callback);
+        // False if already cancelled, in which case nothing is sent
+        private synchronized boolean setUploader(ChunkedUploader uploader) {
+            this.uploader = uploader;
+            return !cancelled;
+        }
     }
 
     /**
-     * Upload URI (from gallery) to Cloudinary
+     * Upload bitmap (from camera) to Cloudinary. It is encoded on a
+     * background thread to fit {@link ImageEncoder#DEFAULT_MAX_BYTES} and
+     * sent from memory.
      */
-    public static void uploadUri(Context context, Uri uri, UploadCallback callback) {
-        try {
-            InputStream inputStream = context.getContentResolver().openInputStream(uri);
-            if (inputStream == null) {
-                callback.onError("Cannot read image file");
+    public static Upload uploadBitmap(Bitmap bitmap, UploadCallback callback) {
+        Upload upload = new Upload();
+        submit(upload, callback, () -> {
+            ImageEncoder.EncodedImage image;
+            try {
+                image = ImageEncoder.encode(bitmap);
+            } catch (IOException | OutOfMemoryError e) {
+                Log.e(TAG, "Error encoding image", e);
+                deliverError(upload, callback, "Error encoding image: " + e.getMessage());
                 return;
             }
+            if (upload.isCancelled()) return;
+
+            upload(upload, image, null, callback);
+        });
+        return upload;
+    }
+
+    /**
+     * Upload URI (from gallery) to Cloudinary, downsampled to
+     * {@link #DEFAULT_MAX_EDGE_PX}
+     */
+    public static Upload uploadUri(Context context, Uri uri, UploadCallback callback) {
+        return uploadUri(context, uri, DEFAULT_MAX_EDGE_PX, callback);
+    }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                baos.write(buffer, 0, bytesRead);
+    /**
+     * Upload URI (from gallery) to Cloudinary. The image is decoded at
+     * reduced size, scaled so its longer edge is at most {@code maxEdgePx},
+     * encoded to fit {@link ImageEncoder#DEFAULT_MAX_BYTES} into a cache
+     * file, and sent from that file.
+     */
+    public static Upload uploadUri(Context context, Uri uri, int maxEdgePx, UploadCallback callback) {
+        Context appContext = context.getApplicationContext();
+        Upload upload = new Upload();
+        submit(upload, callback, () -> {
+            ImageEncoder.EncodedImage image;
+            File file;
+            try {
+                Bitmap bitmap = ImageDownsampler.decode(appContext, uri, maxEdgePx);
+                image = ImageEncoder.encode(bitmap);
+                bitmap.recycle();
+                file = writeTempFile(appContext, image);
+            } catch (IOException | OutOfMemoryError e) {
+                Log.e(TAG, "Error reading image", e);
+                deliverError(upload, callback, "Error reading image: " + e.getMessage());
+                return;
+            }
+            if (upload.isCancelled()) {
+                deleteTempFile(file);
+                return;
             }
-            inputStream.close();
 
-            byte[] imageBytes = baos.toByteArray();
-            uploadBytes(imageBytes, callback);
+            Log.d(TAG, "Encoded " + file.length() + " bytes at quality " + image.getQuality() + " for upload");
+            upload(upload, image, file, callback);
+        });
+        return upload;
+    }
+
+    // Run the encode stage on the image pool, failing fast when it is full
+    private static void submit(Upload upload, UploadCallback callback, Runnable work) {
+        try {
+            upload.setWork(imageExecutor.submit(work));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Image pool is full", e);
+            deliverError(upload, callback, "Too many uploads in progress, please try again");
+        }
+    }
+
+    private static File writeTempFile(Context context, ImageEncoder.EncodedImage image) throws IOException {
+        File directory = new File(context.getCacheDir(), UPLOAD_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = File.createTempFile("upload_", "." + image.getExtension(), directory);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(image.getBytes());
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Send an encoded image to Cloudinary on the current pool thread,
+     * reading it from {@code file} if given and from memory otherwise. The
+     * file is deleted once the upload is over.
+     */
+    private static void upload(Upload upload, ImageEncoder.EncodedImage image, File file,
+                               UploadCallback callback) {
+        ChunkedUploader uploader = newUploader();
+        ChunkedUploader.ProgressListener progress = (bytesSent, totalBytes) ->
+                mainHandler.post(() -> {
+                    if (!upload.isCancelled()) {
+                        callback.onProgress(bytesSent, totalBytes);
+                    }
+                });
+
+        try {
+            if (!upload.setUploader(uploader)) return;
 
+            // One ID for every chunk and retry of this image
+            String uploadId = UUID.randomUUID().toString();
+            String imageUrl = file != null
+                    ? uploadBlocking(uploader, file, image.getMimeType(), uploadId, 0, progress)
+                    : uploadBlocking(uploader, image, uploadId, progress);
+            mainHandler.post(() -> {
+                if (!upload.isCancelled()) {
+                    callback.onSuccess(imageUrl);
+                }
+            });
+        } catch (ChunkedUploader.RejectedException e) {
+            Log.e(TAG, "Upload rejected: " + e.getMessage());
+            deliverError(upload, callback, "Upload failed: " + e.getCode());
         } catch (IOException e) {
-            Log.e(TAG, "Error reading image", e);
-            callback.onError("Error reading image: " + e.getMessage());
+            if (upload.isCancelled()) return;
+            Log.e(TAG, "Upload failed", e);
+            deliverError(upload, callback, "Upload failed: " + e.getMessage());
+        } finally {
+            deleteTempFile(file);
         }
     }
 
+    // An uploader for the item image folder
+    static ChunkedUploader newUploader() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("upload_preset", UPLOAD_PRESET);
+        fields.put("folder", "back2me_items");
+        return new ChunkedUploader(client, UPLOAD_URL, fields);
+    }
+
     /**
-     * Upload bytes to Cloudinary
+     * Send an encoded image file on the calling thread, from
+     * {@code startOffset}, and return its secure URL. Uploads retried under
+     * the same {@code uploadId} are one upload to Cloudinary, so a retry may
+     * start from the bytes an earlier attempt had confirmed.
      */
-    private static void uploadBytes(byte[] imageBytes, UploadCallback callback) {
-        String fileName = "item_" + UUID.randomUUID().toString() + ".jpg";
-
-        RequestBody requestBody = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("file", fileName,
-                        RequestBody.create(MediaType.parse("image/jpeg"), imageBytes))
-                .addFormDataPart("upload_preset", UPLOAD_PRESET)
-                .addFormDataPart("folder", "back2me_items")
-                .build();
-
-        Request request = new Request.Builder()
-                .url(UPLOAD_URL)
-                .post(requestBody)
-                .build();
+    static String uploadBlocking(ChunkedUploader uploader, File file, String mimeType, String uploadId,
+                                 long startOffset, ChunkedUploader.ProgressListener progress) throws IOException {
+        Log.d(TAG, "Uploading image to Cloudinary from byte " + startOffset + "...");
+        return imageUrl(uploader.upload(file, fileName(uploadId, file.getName()), mimeType, uploadId,
+                startOffset, progress));
+    }
 
+    private static String uploadBlocking(ChunkedUploader uploader, ImageEncoder.EncodedImage image,
+                                         String uploadId, ChunkedUploader.ProgressListener progress)
+            throws IOException {
         Log.d(TAG, "Uploading image to Cloudinary...");
+        return imageUrl(uploader.upload(image.getBytes(), fileName(uploadId, "." + image.getExtension()),
+                image.getMimeType(), uploadId, 0, progress));
+    }
 
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                Log.e(TAG, "Upload failed", e);
-                callback.onError("Upload failed: " + e.getMessage());
-            }
+    // Named after the upload, so every attempt at it sends the same name; the extension comes from name
+    private static String fileName(String uploadId, String name) {
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot) : "";
+        return "item_" + uploadId + extension;
+    }
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (response.isSuccessful()) {
-                    try {
-                        String responseBody = response.body().string();
-                        JSONObject json = new JSONObject(responseBody);
-                        String imageUrl = json.getString("secure_url");
-                        Log.d(TAG, "Upload successful: " + imageUrl);
-                        callback.onSuccess(imageUrl);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing response", e);
-                        callback.onError("Error parsing response: " + e.getMessage());
-                    }
-                } else {
-                    String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                    Log.e(TAG, "Upload failed: " + response.code() + " - " + errorBody);
-                    callback.onError("Upload failed: " + response.code());
-                }
+    private static String imageUrl(JsonObject json) throws IOException {
+        if (json == null || !json.has("secure_url")) {
+            throw new IOException("No image URL in response: " + json);
+        }
+        String imageUrl = json.get("secure_url").getAsString();
+        Log.d(TAG, "Upload successful: " + imageUrl);
+        return imageUrl;
+    }
+
+    private static void deliverError(Upload upload, UploadCallback callback, String errorMessage) {
+        mainHandler.post(() -> {
+            if (!upload.isCancelled()) {
+                callback.onError(errorMessage);
             }
         });
     }
-}
\ No newline at end of file
+
+    private static void deleteTempFile(File file) {
+        if (file != null && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.example.back2me;
 
+import com.example.back2me.mapper.DocumentId;
+import com.example.back2me.mapper.EpochMillis;
+import com.example.back2me.mapper.FirestoreDocument;
+
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+@FirestoreDocument
 public class Conversation {
+    @DocumentId(stored = true)
     private String id;
     private List<String> participants;
     private Map<String, String> participantNames;
@@ -11,6 +18,9 @@ public class Conversation {
     private String itemName;
     private String lastMessage;
     private String lastMessageTime;
+    // lastMessageTime as epoch millis
+    @EpochMillis
+    private long lastMessageAt;
 
     public Conversation() {
     }
@@ -24,6 +34,7 @@ public class Conversation {
         this.itemName = itemName;
         this.lastMessage = lastMessage;
         this.lastMessageTime = lastMessageTime;
+        this.lastMessageAt = Timestamps.parseIso(lastMessageTime);
     }
 
     // Getters
@@ -55,6 +66,10 @@ public class Conversation {
         return lastMessageTime;
     }
 
+    public long getLastMessageAt() {
+        return lastMessageAt;
+    }
+
     // Setters
     public void setId(String id) {
         this.id = id;
@@ -82,6 +97,11 @@ public class Conversation {
 
     public void setLastMessageTime(String lastMessageTime) {
         this.lastMessageTime = lastMessageTime;
+        this.lastMessageAt = Timestamps.parseIso(lastMessageTime);
+    }
+
+    public void setLastMessageAt(long lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
     }
 
     // Helper method to get other user's name
@@ -96,6 +116,16 @@ public class Conversation {
         return "User";
     }
 
+    // Copy with one participant's display name replaced
+    public Conversation copyWithParticipantName(String userId, String name) {
+        Map<String, String> names = participantNames != null
+                ? new HashMap<>(participantNames) : new HashMap<>();
+        names.put(userId, name);
+        Conversation copy = new Conversation(id, participants, names, itemId, itemName, lastMessage, lastMessageTime);
+        copy.lastMessageAt = lastMessageAt;
+        return copy;
+    }
+
     // Helper method to get other user's ID
     public String getOtherUserId(String currentUserId) {
         if (participants == null) return null;
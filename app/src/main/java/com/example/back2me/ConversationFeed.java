@@ -0,0 +1,179 @@
+package com.example.back2me;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Live list of a user's conversations, most recently active first.
+ *
+ * The newest page is kept live by one snapshot listener; older pages are
+ * fetched once on demand. A conversation that gets a new message moves
+ * into the live page, and one pushed out of the live page stays on screen
+ * at the top of the older part, so the list only ever grows while open.
+ */
+public class ConversationFeed {
+
+    public interface Listener {
+        // The full ordered list; a new list on every call
+        void onConversationsChanged(List<Conversation> conversations);
+        void onError(Exception e);
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final String userId;
+    private final int pageSize;
+    private final Listener listener;
+
+    private ListenerRegistration registration;
+    private List<Conversation> live = new ArrayList<>();
+    private List<Conversation> older = new ArrayList<>();
+    // Document of the bottom-most conversation shown, for the next page
+    private DocumentSnapshot cursor;
+    private boolean hasMore = false;
+    private boolean loadingMore = false;
+    private boolean loaded = false;
+    // Bumped on every (re)attach so pages for a previous feed are dropped
+    private int generation = 0;
+
+    public ConversationFeed(String userId, Listener listener) {
+        this(userId, DEFAULT_PAGE_SIZE, listener);
+    }
+
+    public ConversationFeed(String userId, int pageSize, Listener listener) {
+        this.userId = userId;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    // Attach the listener; a re-attach starts again from the newest page
+    public void start() {
+        if (registration != null) return;
+
+        final int startGeneration = ++generation;
+        live = new ArrayList<>();
+        older = new ArrayList<>();
+        cursor = null;
+        loadingMore = false;
+
+        registration = ChatRepository.listenToConversations(userId, pageSize,
+                new ChatRepository.ConversationsPageCallback() {
+                    @Override
+                    public void onSuccess(List<Conversation> conversations, DocumentSnapshot lastDocument,
+                                          boolean more) {
+                        if (startGeneration != generation) return;
+                        onLiveChanged(conversations, lastDocument, more);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        listener.onError(e);
+                    }
+                });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        generation++;
+    }
+
+    // Fetch the page after the bottom-most conversation; ignored while busy or at the end
+    public void loadMore() {
+        if (loadingMore || !hasMore || cursor == null) return;
+
+        loadingMore = true;
+        final int requestGeneration = generation;
+
+        ChatRepository.getConversationsPage(userId, cursor, pageSize,
+                new ChatRepository.ConversationsPageCallback() {
+                    @Override
+                    public void onSuccess(List<Conversation> conversations, DocumentSnapshot lastDocument,
+                                          boolean more) {
+                        if (requestGeneration != generation) return;
+                        loadingMore = false;
+                        hasMore = more;
+                        if (conversations.isEmpty()) return;
+
+                        cursor = lastDocument;
+                        Set<String> shown = idsOf(live);
+                        shown.addAll(idsOf(older));
+                        for (Conversation conversation : conversations) {
+                            if (!shown.contains(conversation.getId())) {
+                                older.add(conversation);
+                            }
+                        }
+                        publish();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (requestGeneration != generation) return;
+                        loadingMore = false;
+                        listener.onError(e);
+                    }
+                });
+    }
+
+    private void onLiveChanged(List<Conversation> conversations, DocumentSnapshot lastDocument, boolean more) {
+        Set<String> liveIds = idsOf(conversations);
+
+        // Anything that left the live page was pushed below it by newer activity
+        List<Conversation> pushedOut = new ArrayList<>();
+        for (Conversation conversation : live) {
+            if (!liveIds.contains(conversation.getId())) {
+                pushedOut.add(conversation);
+            }
+        }
+
+        Set<String> pushedOutIds = idsOf(pushedOut);
+        List<Conversation> newOlder = new ArrayList<>(pushedOut.size() + older.size());
+        newOlder.addAll(pushedOut);
+        for (Conversation conversation : older) {
+            // Older conversations with a new message now sit in the live page
+            if (!liveIds.contains(conversation.getId()) && !pushedOutIds.contains(conversation.getId())) {
+                newOlder.add(conversation);
+            }
+        }
+
+        if (newOlder.isEmpty()) {
+            cursor = lastDocument;
+            hasMore = more;
+        }
+
+        live = conversations;
+        older = newOlder;
+        loaded = true;
+        publish();
+    }
+
+    private void publish() {
+        List<Conversation> all = new ArrayList<>(live.size() + older.size());
+        all.addAll(live);
+        all.addAll(older);
+        listener.onConversationsChanged(all);
+    }
+
+    private static Set<String> idsOf(List<Conversation> conversations) {
+        Set<String> ids = new HashSet<>();
+        for (Conversation conversation : conversations) {
+            ids.add(conversation.getId());
+        }
+        return ids;
+    }
+}
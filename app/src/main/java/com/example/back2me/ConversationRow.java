@@ -0,0 +1,102 @@
+package com.example.back2me;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Display model for a conversation in the inbox, seen from the current
+ * user. The other participant's name, the avatar initial and the relative
+ * time are resolved once in {@link #from}.
+ */
+public final class ConversationRow {
+
+    private final Conversation conversation;
+    private final String otherName;
+    private final String avatarInitial;
+    // Null when the conversation is not about an item
+    private final String itemName;
+    // Null before the first message
+    private final String lastMessage;
+    private final String time;
+
+    private ConversationRow(Conversation conversation, String otherName, String avatarInitial,
+                            String itemName, String lastMessage, String time) {
+        this.conversation = conversation;
+        this.otherName = otherName;
+        this.avatarInitial = avatarInitial;
+        this.itemName = itemName;
+        this.lastMessage = lastMessage;
+        this.time = time;
+    }
+
+    public static ConversationRow from(Conversation conversation, String currentUserId) {
+        String otherName = conversation.getOtherUserName(currentUserId);
+        String avatarInitial = otherName != null && !otherName.isEmpty()
+                ? otherName.substring(0, 1).toUpperCase(Locale.getDefault()) : "?";
+        String itemName = conversation.getItemName();
+        String lastMessage = conversation.getLastMessage();
+
+        return new ConversationRow(conversation, otherName, avatarInitial,
+                itemName != null && !itemName.isEmpty() ? itemName : null,
+                lastMessage != null && !lastMessage.isEmpty() ? lastMessage : null,
+                relativeTime(conversation.getLastMessageAt()));
+    }
+
+    // Time today, weekday within a week, otherwise the date
+    private static String relativeTime(long timestamp) {
+        if (timestamp <= 0) {
+            return "";
+        }
+
+        long diffDays = TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis() - timestamp);
+        if (diffDays == 0) {
+            return Timestamps.formatTime(timestamp);
+        } else if (diffDays < 7) {
+            return Timestamps.formatWeekday(timestamp);
+        } else {
+            return Timestamps.formatShortDate(timestamp);
+        }
+    }
+
+    // The conversation behind the row, for click handling
+    public Conversation getConversation() {
+        return conversation;
+    }
+
+    public String getId() {
+        return conversation.getId();
+    }
+
+    public String getOtherName() {
+        return otherName;
+    }
+
+    public String getAvatarInitial() {
+        return avatarInitial;
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public boolean sameContents(ConversationRow other) {
+        return sameExceptLastMessage(other)
+                && Objects.equals(lastMessage, other.lastMessage)
+                && Objects.equals(time, other.time);
+    }
+
+    // True when the header is unchanged, so only the preview needs rebinding
+    public boolean sameExceptLastMessage(ConversationRow other) {
+        return Objects.equals(otherName, other.otherName)
+                && Objects.equals(itemName, other.itemName);
+    }
+}
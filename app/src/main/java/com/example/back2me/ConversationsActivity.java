@@ -10,14 +10,20 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.back2me.databinding.ActivityConversationsBinding;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ConversationsActivity extends AppCompatActivity implements ConversationsAdapter.OnConversationClickListener {
 
@@ -26,6 +32,11 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
     private ActivityConversationsBinding binding;
     private ConversationsAdapter adapter;
     private List<Conversation> conversations = new ArrayList<>();
+    private ConversationFeed conversationFeed;
+
+    // Names found for placeholder participants, and users already looked up
+    private final Map<String, String> resolvedNames = new HashMap<>();
+    private final Set<String> lookedUpUserIds = new HashSet<>();
 
     private FirebaseAuth auth;
     private FirebaseFirestore db;
@@ -51,12 +62,28 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
 
         setupUI();
         setupRecyclerView();
+        setupConversationFeed();
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        loadConversations();
+    protected void onStart() {
+        super.onStart();
+        // The listener keeps the list current, so there is nothing to refetch on resume
+        if (conversationFeed != null) {
+            if (!conversationFeed.isLoaded()) {
+                binding.progressBar.setVisibility(View.VISIBLE);
+                binding.layoutEmptyState.setVisibility(View.GONE);
+            }
+            conversationFeed.start();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (conversationFeed != null) {
+            conversationFeed.stop();
+        }
     }
 
     private void setupUI() {
@@ -64,27 +91,26 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
     }
 
     private void setupRecyclerView() {
-        adapter = new ConversationsAdapter(conversations, currentUserId, this);
-        binding.recyclerConversations.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new ConversationsAdapter(currentUserId, this);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        binding.recyclerConversations.setLayoutManager(layoutManager);
         binding.recyclerConversations.setAdapter(adapter);
+        binding.recyclerConversations.addOnScrollListener(
+                new InfiniteScrollListener(layoutManager, () -> conversationFeed.loadMore()));
     }
 
-    private void loadConversations() {
-        binding.progressBar.setVisibility(View.VISIBLE);
-        binding.layoutEmptyState.setVisibility(View.GONE);
-
-        ChatRepository.getConversationsForUser(currentUserId, new ChatRepository.ConversationsCallback() {
+    private void setupConversationFeed() {
+        conversationFeed = new ConversationFeed(currentUserId, new ConversationFeed.Listener() {
             @Override
-            public void onSuccess(List<Conversation> conversationsList) {
+            public void onConversationsChanged(List<Conversation> conversationsList) {
                 binding.progressBar.setVisibility(View.GONE);
+                conversations = conversationsList;
 
-                conversations.clear();
-                conversations.addAll(conversationsList);
-
-                // Look up real names for all conversations
+                // Show what we have right away, then fill in any missing names
+                showConversations();
                 lookupRealNames();
 
-                Log.d(TAG, "Loaded " + conversationsList.size() + " conversations");
+                Log.d(TAG, "Showing " + conversationsList.size() + " conversations");
             }
 
             @Override
@@ -100,105 +126,103 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
     }
 
     private void lookupRealNames() {
-        if (conversations.isEmpty()) {
-            updateEmptyState();
-            return;
-        }
-
-        final int[] pendingLookups = {conversations.size()};
-
+        // Collect every other participant still shown with a placeholder name
+        Set<String> userIds = new HashSet<>();
         for (Conversation conversation : conversations) {
             String otherUserId = conversation.getOtherUserId(currentUserId);
-            String currentName = conversation.getOtherUserName(currentUserId);
-
-            // Skip if already has a good name (not "Item Owner" or "User")
-            if (currentName != null && !currentName.equals("Item Owner") && !currentName.equals("User") && !currentName.isEmpty()) {
-                pendingLookups[0]--;
-                if (pendingLookups[0] <= 0) {
-                    adapter.notifyDataSetChanged();
-                    updateEmptyState();
-                }
-                continue;
+            if (needsRealName(conversation) && otherUserId != null && !otherUserId.isEmpty()
+                    && !lookedUpUserIds.contains(otherUserId)) {
+                userIds.add(otherUserId);
             }
+        }
+        if (userIds.isEmpty()) return;
+        lookedUpUserIds.addAll(userIds);
 
-            if (otherUserId != null && !otherUserId.isEmpty()) {
-                // First try users collection
-                db.collection("users").document(otherUserId)
-                        .get()
-                        .addOnSuccessListener(document -> {
-                            boolean foundName = false;
-                            if (document.exists()) {
-                                String displayName = document.getString("displayName");
-                                if (displayName != null && !displayName.isEmpty()) {
-                                    updateConversationName(conversation, otherUserId, displayName);
-                                    foundName = true;
-                                }
-                            }
-
-                            if (!foundName) {
-                                // Try to get name from messages
-                                lookupNameFromMessages(conversation, otherUserId, pendingLookups);
-                            } else {
-                                pendingLookups[0]--;
-                                if (pendingLookups[0] <= 0) {
-                                    adapter.notifyDataSetChanged();
-                                    updateEmptyState();
-                                }
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            // Try messages as fallback
-                            lookupNameFromMessages(conversation, otherUserId, pendingLookups);
-                        });
-            } else {
-                pendingLookups[0]--;
-                if (pendingLookups[0] <= 0) {
-                    adapter.notifyDataSetChanged();
-                    updateEmptyState();
+        // One batched read for the whole list
+        UserProfileRepository.getProfiles(userIds, new UserProfileRepository.ProfilesCallback() {
+            @Override
+            public void onSuccess(Map<String, UserProfile> profiles) {
+                Set<String> unresolved = new HashSet<>(userIds);
+                for (String userId : userIds) {
+                    UserProfile profile = profiles.get(userId);
+                    if (profile != null && profile.hasDisplayName()) {
+                        resolvedNames.put(userId, profile.getDisplayName());
+                        unresolved.remove(userId);
+                    }
                 }
+                showConversations();
+                lookupNamesFromMessages(unresolved);
             }
-        }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error looking up user profiles", e);
+                lookupNamesFromMessages(userIds);
+            }
+        });
     }
 
-    private void lookupNameFromMessages(Conversation conversation, String otherUserId, int[] pendingLookups) {
-        db.collection("conversations")
-                .document(conversation.getId())
-                .collection("messages")
-                .whereEqualTo("senderId", otherUserId)
-                .limit(1)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (!querySnapshot.isEmpty()) {
+    // Skip if already has a good name (not "Item Owner" or "User")
+    private boolean needsRealName(Conversation conversation) {
+        String currentName = conversation.getOtherUserName(currentUserId);
+        return currentName == null || currentName.isEmpty()
+                || currentName.equals("Item Owner") || currentName.equals("User");
+    }
+
+    // Fallback for users without a profile: one message query per user, not per conversation
+    private void lookupNamesFromMessages(Set<String> userIds) {
+        List<Task<QuerySnapshot>> lookups = new ArrayList<>();
+        for (String otherUserId : userIds) {
+            Conversation conversation = findConversationWith(otherUserId);
+            if (conversation == null || resolvedNames.containsKey(otherUserId)) continue;
+
+            Task<QuerySnapshot> lookup = db.collection("conversations")
+                    .document(conversation.getId())
+                    .collection("messages")
+                    .whereEqualTo("senderId", otherUserId)
+                    .limit(1)
+                    .get()
+                    .addOnSuccessListener(querySnapshot -> {
                         for (QueryDocumentSnapshot doc : querySnapshot) {
                             String senderName = doc.getString("senderName");
                             if (senderName != null && !senderName.isEmpty() && !senderName.equals("Item Owner")) {
-                                updateConversationName(conversation, otherUserId, senderName);
+                                UserProfileRepository.rememberDisplayName(otherUserId, senderName);
+                                resolvedNames.put(otherUserId, senderName);
                                 break;
                             }
                         }
-                    }
+                    })
+                    .addOnFailureListener(e -> Log.e(TAG, "Error looking up name from messages", e));
+            lookups.add(lookup);
+        }
+        if (lookups.isEmpty()) return;
 
-                    pendingLookups[0]--;
-                    if (pendingLookups[0] <= 0) {
-                        adapter.notifyDataSetChanged();
-                        updateEmptyState();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error looking up name from messages", e);
-                    pendingLookups[0]--;
-                    if (pendingLookups[0] <= 0) {
-                        adapter.notifyDataSetChanged();
-                        updateEmptyState();
-                    }
-                });
+        Tasks.whenAllComplete(lookups).addOnCompleteListener(task -> showConversations());
+    }
+
+    private Conversation findConversationWith(String otherUserId) {
+        for (Conversation conversation : conversations) {
+            if (otherUserId.equals(conversation.getOtherUserId(currentUserId))) {
+                return conversation;
+            }
+        }
+        return null;
     }
 
-    private void updateConversationName(Conversation conversation, String otherUserId, String name) {
-        Map<String, String> names = conversation.getParticipantNames();
-        if (names != null) {
-            names.put(otherUserId, name);
+    // Submit the feed with resolved names applied to copies, never to the feed's own objects
+    private void showConversations() {
+        List<Conversation> named = new ArrayList<>(conversations.size());
+        for (Conversation conversation : conversations) {
+            String otherUserId = conversation.getOtherUserId(currentUserId);
+            String name = otherUserId != null ? resolvedNames.get(otherUserId) : null;
+            if (name != null && needsRealName(conversation)) {
+                named.add(conversation.copyWithParticipantName(otherUserId, name));
+            } else {
+                named.add(conversation);
+            }
         }
+        adapter.submitSource(named);
+        updateEmptyState();
     }
 
     private void updateEmptyState() {
@@ -8,38 +8,24 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
-import java.util.concurrent.TimeUnit;
 
-public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdapter.ConversationViewHolder> {
+public class ConversationsAdapter
+        extends RowListAdapter<Conversation, ConversationRow, ConversationsAdapter.ConversationViewHolder> {
+
+    // Payload for a row where only the last message preview changed
+    private static final Object PAYLOAD_LAST_MESSAGE = "last_message";
 
-    private final List<Conversation> conversations;
     private final String currentUserId;
     private final OnConversationClickListener listener;
 
-    private final SimpleDateFormat isoFormat;
-    private final SimpleDateFormat timeFormat;
-    private final SimpleDateFormat dateFormat;
-
     public interface OnConversationClickListener {
         void onConversationClick(Conversation conversation);
     }
 
-    public ConversationsAdapter(List<Conversation> conversations, String currentUserId,
-                                OnConversationClickListener listener) {
-        this.conversations = conversations;
+    public ConversationsAdapter(String currentUserId, OnConversationClickListener listener) {
         this.currentUserId = currentUserId;
         this.listener = listener;
-
-        isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        timeFormat = new SimpleDateFormat("hh:mm a", Locale.getDefault());
-        dateFormat = new SimpleDateFormat("MMM d", Locale.getDefault());
     }
 
     @NonNull
@@ -51,39 +37,50 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ConversationViewHolder holder, int position) {
-        Conversation conversation = conversations.get(position);
+    protected ConversationRow buildRow(Conversation conversation) {
+        return ConversationRow.from(conversation, currentUserId);
+    }
+
+    @Override
+    protected String getItemKey(ConversationRow row) {
+        return row.getId();
+    }
 
-        // Set other participant's name - using getOtherUserName instead of getOtherParticipantName
-        String otherName = conversation.getOtherUserName(currentUserId);
-        holder.textUserName.setText(otherName);
+    @Override
+    protected boolean areContentsTheSame(ConversationRow oldRow, ConversationRow newRow) {
+        return oldRow.sameContents(newRow);
+    }
+
+    @Override
+    protected Object getChangePayload(ConversationRow oldRow, ConversationRow newRow) {
+        return oldRow.sameExceptLastMessage(newRow) ? PAYLOAD_LAST_MESSAGE : null;
+    }
 
-        // Set avatar initial
-        if (otherName != null && !otherName.isEmpty()) {
-            holder.textAvatar.setText(String.valueOf(otherName.charAt(0)).toUpperCase());
+    @Override
+    protected void onBindPayloads(@NonNull ConversationViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_LAST_MESSAGE)) {
+            bindLastMessage(holder, getItem(position));
         } else {
-            holder.textAvatar.setText("?");
+            onBindViewHolder(holder, position);
         }
+    }
 
-        // Set item name if available
-        String itemName = conversation.getItemName();
-        if (itemName != null && !itemName.isEmpty()) {
-            holder.textItemName.setText(itemName);
+    @Override
+    public void onBindViewHolder(@NonNull ConversationViewHolder holder, int position) {
+        ConversationRow row = getItem(position);
+
+        holder.textUserName.setText(row.getOtherName());
+        holder.textAvatar.setText(row.getAvatarInitial());
+
+        // Item name if available
+        if (row.getItemName() != null) {
+            holder.textItemName.setText(row.getItemName());
             holder.textItemName.setVisibility(View.VISIBLE);
         } else {
             holder.textItemName.setVisibility(View.GONE);
         }
 
-        // Set last message
-        String lastMessage = conversation.getLastMessage();
-        if (lastMessage != null && !lastMessage.isEmpty()) {
-            holder.textLastMessage.setText(lastMessage);
-        } else {
-            holder.textLastMessage.setText(R.string.no_messages_yet);
-        }
-
-        // Set timestamp
-        holder.textTime.setText(formatTimestamp(conversation.getLastMessageTime()));
+        bindLastMessage(holder, row);
 
         // Hide unread indicator (simplified - no unread tracking)
         holder.viewUnreadIndicator.setVisibility(View.GONE);
@@ -92,43 +89,18 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
         // Click listener
         holder.itemView.setOnClickListener(v -> {
             if (listener != null) {
-                listener.onConversationClick(conversation);
+                listener.onConversationClick(row.getConversation());
             }
         });
     }
 
-    private String formatTimestamp(String timestamp) {
-        if (timestamp == null || timestamp.isEmpty()) {
-            return "";
-        }
-
-        try {
-            Date date = isoFormat.parse(timestamp);
-            if (date == null) return "";
-
-            Date now = new Date();
-            long diffMs = now.getTime() - date.getTime();
-            long diffDays = TimeUnit.MILLISECONDS.toDays(diffMs);
-
-            if (diffDays == 0) {
-                // Today - show time
-                return timeFormat.format(date);
-            } else if (diffDays < 7) {
-                // This week - show day name
-                SimpleDateFormat dayFormat = new SimpleDateFormat("EEE", Locale.getDefault());
-                return dayFormat.format(date);
-            } else {
-                // Older - show date
-                return dateFormat.format(date);
-            }
-        } catch (ParseException e) {
-            return "";
+    private void bindLastMessage(ConversationViewHolder holder, ConversationRow row) {
+        if (row.getLastMessage() != null) {
+            holder.textLastMessage.setText(row.getLastMessage());
+        } else {
+            holder.textLastMessage.setText(R.string.no_messages_yet);
         }
-    }
-
-    @Override
-    public int getItemCount() {
-        return conversations.size();
+        holder.textTime.setText(row.getTime());
     }
 
     public static class ConversationViewHolder extends RecyclerView.ViewHolder {
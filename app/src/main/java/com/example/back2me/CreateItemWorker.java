@@ -0,0 +1,118 @@
+package com.example.back2me;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Last step of a queued post: writes the item, with the photo URL from
+ * {@link ImageUploadWorker} if there was one. The item ID was chosen when
+ * the post was queued, so a retry writes the same document again. The
+ * creation time is taken when the write runs, not when the post was
+ * queued, so an item that waited for Wi-Fi still lands at the top of the
+ * feed.
+ */
+public class CreateItemWorker extends Worker {
+
+    private static final String TAG = "CreateItemWorker";
+
+    private static final String KEY_ITEM_ID = "item_id";
+    private static final String KEY_NAME = "name";
+    private static final String KEY_LOCATION = "location";
+    private static final String KEY_DESCRIPTION = "description";
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_CREATED_BY = "created_by";
+
+    // How long one run waits for Firestore to acknowledge the write
+    private static final long WRITE_TIMEOUT_SECONDS = 60;
+    private static final int MAX_RUNS = 8;
+
+    public CreateItemWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    static Data inputFor(Item item) {
+        return new Data.Builder()
+                .putString(KEY_ITEM_ID, item.getId())
+                .putString(KEY_NAME, item.getName())
+                .putString(KEY_LOCATION, item.getLocation())
+                .putString(KEY_DESCRIPTION, item.getDescription())
+                .putString(KEY_STATUS, item.getStatus())
+                .putString(KEY_CREATED_BY, item.getCreatedBy())
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Data input = getInputData();
+        String createdBy = input.getString(KEY_CREATED_BY);
+
+        // Never post as someone else if the account changed while this waited
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || !user.getUid().equals(createdBy)) {
+            Log.w(TAG, "Dropping item " + input.getString(KEY_ITEM_ID) + " queued by another account");
+            return Result.failure();
+        }
+
+        String imageUrl = input.getString(ImageUploadWorker.KEY_IMAGE_URL);
+        Item item = new Item(
+                input.getString(KEY_ITEM_ID),
+                input.getString(KEY_NAME),
+                input.getString(KEY_LOCATION),
+                input.getString(KEY_DESCRIPTION),
+                input.getString(KEY_STATUS),
+                createdBy,
+                Timestamps.nowIso(),
+                imageUrl != null ? imageUrl : ""
+        );
+
+        // The repository answers on the main thread; this worker thread waits for it
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ItemRepository.createItem(item, new ItemRepository.CreateCallback() {
+            @Override
+            public void onSuccess(Item createdItem) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                failure.set(e);
+                done.countDown();
+            }
+        });
+
+        try {
+            if (!done.await(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                failure.set(new Exception("Timed out after " + WRITE_TIMEOUT_SECONDS + " s"));
+            }
+        } catch (InterruptedException e) {
+            // Stopped by WorkManager, which schedules the run again itself
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        if (failure.get() != null) {
+            if (getRunAttemptCount() + 1 >= MAX_RUNS) {
+                Log.e(TAG, "Giving up on item " + item.getId() + " after " + MAX_RUNS + " runs", failure.get());
+                return Result.failure();
+            }
+            Log.w(TAG, "Error creating item " + item.getId() + ", will retry", failure.get());
+            return Result.retry();
+        }
+        Log.d(TAG, "Item created: " + item.getId());
+        return Result.success();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.back2me;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base adapter that diffs each submitted list against the current one on a
+ * background thread and applies only the resulting insert/move/remove/change
+ * operations. Rows are keyed on their Firestore document ID, which also
+ * backs stable item IDs.
+ *
+ * Subclasses can return a payload from {@link #getChangePayload} so a
+ * change such as a status flip rebinds one view instead of the whole row.
+ */
+public abstract class DiffListAdapter<T, VH extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<VH> {
+
+    private final AsyncListDiffer<T> differ;
+    private final Map<String, Long> stableIds = new HashMap<>();
+
+    protected DiffListAdapter() {
+        DiffUtil.ItemCallback<T> itemCallback = new DiffUtil.ItemCallback<T>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+                String oldKey = getItemKey(oldItem);
+                return oldKey != null && oldKey.equals(getItemKey(newItem));
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+                return DiffListAdapter.this.areContentsTheSame(oldItem, newItem);
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(@NonNull T oldItem, @NonNull T newItem) {
+                return DiffListAdapter.this.getChangePayload(oldItem, newItem);
+            }
+        };
+
+        differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(itemCallback).build());
+        setHasStableIds(true);
+    }
+
+    // Document ID of the row
+    protected abstract String getItemKey(T item);
+
+    // Whether everything the row displays is unchanged
+    protected abstract boolean areContentsTheSame(T oldItem, T newItem);
+
+    // Describe a partial change, or null to rebind the whole row
+    @Nullable
+    protected Object getChangePayload(T oldItem, T newItem) {
+        return null;
+    }
+
+    // Rebind only what the payloads describe; defaults to a full rebind
+    protected void onBindPayloads(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        onBindViewHolder(holder, position);
+    }
+
+    /**
+     * Replace the displayed list. The list must not be mutated afterwards;
+     * pass a fresh copy for every update.
+     */
+    public void submitList(List<T> list) {
+        differ.submitList(list);
+    }
+
+    // Same as submitList, running the callback once the changes are on screen
+    public void submitList(List<T> list, Runnable commitCallback) {
+        differ.submitList(list, commitCallback);
+    }
+
+    public List<T> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    public T getItem(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = getItemKey(getItem(position));
+        if (key == null) return RecyclerView.NO_ID;
+
+        Long id = stableIds.get(key);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(key, id);
+        }
+        return id;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            onBindPayloads(holder, position, payloads);
+        }
+    }
+}
@@ -5,8 +5,6 @@ import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.view.View;
 import android.widget.Toast;
 
@@ -23,7 +21,6 @@ import com.google.firebase.auth.FirebaseAuth;
 public class EditItemActivity extends AppCompatActivity {
 
     private ActivityEditItemBinding binding;
-    private Handler mainHandler;
 
     private String itemId;
     private Item currentItem;
@@ -33,6 +30,8 @@ public class EditItemActivity extends AppCompatActivity {
     private String currentImageUrl = "";
     private boolean imageChanged = false;
     private boolean isUploading = false;
+    // Cancelled if the screen goes away mid-upload
+    private CloudinaryHelper.Upload currentUpload;
 
     private final ActivityResultLauncher<Void> cameraLauncher =
             registerForActivityResult(new ActivityResultContracts.TakePicturePreview(), bitmap -> {
@@ -69,8 +68,6 @@ public class EditItemActivity extends AppCompatActivity {
         binding = ActivityEditItemBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mainHandler = new Handler(Looper.getMainLooper());
-
         itemId = getIntent().getStringExtra("ITEM_ID");
         if (itemId == null) {
             Toast.makeText(this, "Item not found", Toast.LENGTH_SHORT).show();
@@ -82,6 +79,14 @@ public class EditItemActivity extends AppCompatActivity {
         loadItem();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (currentUpload != null) {
+            currentUpload.cancel();
+        }
+    }
+
     private void setupClickListeners() {
         binding.backButton.setOnClickListener(v -> finish());
 
@@ -229,44 +234,36 @@ public class EditItemActivity extends AppCompatActivity {
 
     private void uploadBitmapAndUpdate(String name, String location, String description) {
         isUploading = true;
-        CloudinaryHelper.uploadBitmap(selectedBitmap, new CloudinaryHelper.UploadCallback() {
+        currentUpload = CloudinaryHelper.uploadBitmap(selectedBitmap, new CloudinaryHelper.UploadCallback() {
             @Override
             public void onSuccess(String imageUrl) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    updateItem(name, location, description, imageUrl);
-                });
+                isUploading = false;
+                updateItem(name, location, description, imageUrl);
             }
 
             @Override
             public void onError(String errorMessage) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    setLoading(false);
-                    Toast.makeText(EditItemActivity.this, "Upload failed: " + errorMessage, Toast.LENGTH_LONG).show();
-                });
+                isUploading = false;
+                setLoading(false);
+                Toast.makeText(EditItemActivity.this, "Upload failed: " + errorMessage, Toast.LENGTH_LONG).show();
             }
         });
     }
 
     private void uploadUriAndUpdate(String name, String location, String description) {
         isUploading = true;
-        CloudinaryHelper.uploadUri(this, selectedImageUri, new CloudinaryHelper.UploadCallback() {
+        currentUpload = CloudinaryHelper.uploadUri(this, selectedImageUri, new CloudinaryHelper.UploadCallback() {
             @Override
             public void onSuccess(String imageUrl) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    updateItem(name, location, description, imageUrl);
-                });
+                isUploading = false;
+                updateItem(name, location, description, imageUrl);
             }
 
             @Override
             public void onError(String errorMessage) {
-                mainHandler.post(() -> {
-                    isUploading = false;
-                    setLoading(false);
-                    Toast.makeText(EditItemActivity.this, "Upload failed: " + errorMessage, Toast.LENGTH_LONG).show();
-                });
+                isUploading = false;
+                setLoading(false);
+                Toast.makeText(EditItemActivity.this, "Upload failed: " + errorMessage, Toast.LENGTH_LONG).show();
             }
         });
     }
@@ -4,7 +4,6 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
@@ -25,7 +24,6 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.UserProfileChangeRequest;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,11 +31,16 @@ public class EditProfileActivity extends AppCompatActivity {
 
     private static final String TAG = "EditProfileActivity";
 
+    // Longest edge of a profile photo picked from the gallery
+    private static final int PROFILE_PHOTO_MAX_EDGE_PX = 512;
+
     private ActivityEditProfileBinding binding;
     private FirebaseAuth auth;
     private FirebaseFirestore db;
     private Bitmap selectedBitmap;
     private String currentPhotoUrl;
+    // Cancelled if the screen goes away mid-upload
+    private CloudinaryHelper.Upload currentUpload;
 
     private final ActivityResultLauncher<Intent> galleryLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
@@ -45,11 +48,8 @@ public class EditProfileActivity extends AppCompatActivity {
                     Uri imageUri = result.getData().getData();
                     if (imageUri != null) {
                         try {
-                            InputStream inputStream = getContentResolver().openInputStream(imageUri);
-                            selectedBitmap = BitmapFactory.decodeStream(inputStream);
-                            if (inputStream != null) {
-                                inputStream.close();
-                            }
+                            // A profile photo is shown small; don't decode the full-size original
+                            selectedBitmap = ImageDownsampler.decode(this, imageUri, PROFILE_PHOTO_MAX_EDGE_PX);
                             binding.imageProfile.setImageBitmap(selectedBitmap);
                             Log.d(TAG, "Image selected from gallery");
                         } catch (Exception e) {
@@ -94,6 +94,14 @@ public class EditProfileActivity extends AppCompatActivity {
         setupClickListeners();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (currentUpload != null) {
+            currentUpload.cancel();
+        }
+    }
+
     private void loadUserData() {
         FirebaseUser user = auth.getCurrentUser();
         if (user == null) {
@@ -209,22 +217,20 @@ public class EditProfileActivity extends AppCompatActivity {
     private void uploadImageAndSave(String displayName, String phone) {
         Log.d(TAG, "Uploading image to Cloudinary...");
 
-        CloudinaryHelper.uploadBitmap(selectedBitmap, new CloudinaryHelper.UploadCallback() {
+        currentUpload = CloudinaryHelper.uploadBitmap(selectedBitmap, new CloudinaryHelper.UploadCallback() {
             @Override
             public void onSuccess(String imageUrl) {
                 Log.d(TAG, "Image uploaded successfully: " + imageUrl);
-                runOnUiThread(() -> updateProfile(displayName, phone, imageUrl));
+                updateProfile(displayName, phone, imageUrl);
             }
 
             @Override
             public void onError(String error) {
                 Log.e(TAG, "Image upload failed: " + error);
-                runOnUiThread(() -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    binding.buttonSave.setEnabled(true);
-                    Toast.makeText(EditProfileActivity.this,
-                            "Failed to upload image: " + error, Toast.LENGTH_LONG).show();
-                });
+                binding.progressBar.setVisibility(View.GONE);
+                binding.buttonSave.setEnabled(true);
+                Toast.makeText(EditProfileActivity.this,
+                        "Failed to upload image: " + error, Toast.LENGTH_LONG).show();
             }
         });
     }
@@ -0,0 +1,123 @@
+package com.example.back2me;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes images no larger than needed.
+ *
+ * The header is read first, so the decoder can skip pixels with
+ * inSampleSize instead of materialising the full-resolution image, and
+ * the result is scaled the rest of the way down to the requested edge.
+ * Camera orientation stored in EXIF is applied to the pixels, since
+ * re-encoding drops the tag. Does I/O and decoding; call off the main
+ * thread.
+ */
+public final class ImageDownsampler {
+
+    private static final String TAG = "ImageDownsampler";
+
+    private ImageDownsampler() {
+    }
+
+    /**
+     * Decode the image at {@code uri} so that its longer edge is at most
+     * {@code maxEdgePx}; smaller images keep their size.
+     *
+     * @throws IOException if the image can't be read or decoded
+     */
+    public static Bitmap decode(Context context, Uri uri, int maxEdgePx) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not an image");
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxEdgePx);
+        Bitmap sampled;
+        try (InputStream in = open(resolver, uri)) {
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (sampled == null) {
+            throw new IOException("Could not decode image");
+        }
+
+        return scaleAndRotate(sampled, maxEdgePx, readRotation(resolver, uri));
+    }
+
+    /**
+     * Largest power of two that keeps the longer edge at or above
+     * {@code maxEdgePx}, so the exact scale after decoding only ever
+     * shrinks. 1 when the image is already small enough.
+     */
+    public static int calculateInSampleSize(int width, int height, int maxEdgePx) {
+        int longEdge = Math.max(width, height);
+        int sampleSize = 1;
+        while (longEdge / (sampleSize * 2) >= maxEdgePx) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Returns the source when nothing needs doing; otherwise recycles it
+    private static Bitmap scaleAndRotate(Bitmap source, int maxEdgePx, int rotationDegrees) {
+        int longEdge = Math.max(source.getWidth(), source.getHeight());
+        float scale = longEdge > maxEdgePx ? (float) maxEdgePx / longEdge : 1f;
+        if (scale == 1f && rotationDegrees == 0) {
+            return source;
+        }
+
+        Matrix matrix = new Matrix();
+        matrix.postScale(scale, scale);
+        matrix.postRotate(rotationDegrees);
+        Bitmap result = Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+        if (result != source) {
+            source.recycle();
+        }
+        return result;
+    }
+
+    // Clockwise rotation recorded by the camera, 0 if none or unreadable
+    private static int readRotation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = open(resolver, uri)) {
+            int orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read orientation of " + uri, e);
+            return 0;
+        }
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Cannot read image file");
+        }
+        return in;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.back2me;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes bitmaps for upload at the best quality that fits a byte budget.
+ *
+ * Lossy WebP is used, which every supported API level can write and which
+ * is markedly smaller than JPEG at the same quality. The quality is found
+ * with {@link TargetSizeEncoder}; if even the lowest quality is over
+ * budget the image is scaled down a step and searched again. The output
+ * is freshly encoded pixels, so no EXIF block (location, device, original
+ * timestamps) from the source file is ever uploaded. Call off the main
+ * thread.
+ */
+public final class ImageEncoder {
+
+    // Item photos land well under 200 KB
+    public static final int DEFAULT_MAX_BYTES = 150 * 1024;
+
+    private static final int MIN_QUALITY = 40;
+    private static final int MAX_QUALITY = 90;
+    private static final float DOWNSCALE_FACTOR = 0.75f;
+    private static final int MAX_DOWNSCALES = 3;
+
+    public static final class EncodedImage {
+        private final byte[] bytes;
+        private final String mimeType;
+        private final String extension;
+        private final int quality;
+
+        EncodedImage(byte[] bytes, String mimeType, String extension, int quality) {
+            this.bytes = bytes;
+            this.mimeType = mimeType;
+            this.extension = extension;
+            this.quality = quality;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        // Without the dot, e.g. "webp"
+        public String getExtension() {
+            return extension;
+        }
+
+        public int getQuality() {
+            return quality;
+        }
+    }
+
+    private ImageEncoder() {
+    }
+
+    public static EncodedImage encode(Bitmap bitmap) throws IOException {
+        return encode(bitmap, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Encode {@code bitmap} in at most {@code maxBytes} if it can be done
+     * within a few downscales; otherwise the smallest attempt. The caller's
+     * bitmap is left untouched.
+     */
+    public static EncodedImage encode(Bitmap bitmap, int maxBytes) throws IOException {
+        Bitmap.CompressFormat format = preferredFormat();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(maxBytes);
+
+        Bitmap current = bitmap;
+        try {
+            for (int downscales = 0; ; downscales++) {
+                Bitmap source = current;
+                TargetSizeEncoder.Result result = TargetSizeEncoder.encode(quality -> {
+                    out.reset();
+                    if (!source.compress(format, quality, out)) {
+                        throw new IOException("Could not encode image");
+                    }
+                    return out.toByteArray();
+                }, maxBytes, MIN_QUALITY, MAX_QUALITY);
+
+                if (result.isWithinBudget() || downscales == MAX_DOWNSCALES) {
+                    return new EncodedImage(result.getBytes(), "image/webp", "webp", result.getQuality());
+                }
+
+                int width = Math.max(1, Math.round(current.getWidth() * DOWNSCALE_FACTOR));
+                int height = Math.max(1, Math.round(current.getHeight() * DOWNSCALE_FACTOR));
+                Bitmap smaller = Bitmap.createScaledBitmap(current, width, height, true);
+                if (current != bitmap) {
+                    current.recycle();
+                }
+                current = smaller;
+            }
+        } finally {
+            if (current != bitmap) {
+                current.recycle();
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat preferredFormat() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return Bitmap.CompressFormat.WEBP_LOSSY;
+        }
+        // Before API 30 WEBP is lossy below quality 100
+        return Bitmap.CompressFormat.WEBP;
+    }
+}
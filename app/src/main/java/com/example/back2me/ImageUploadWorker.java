@@ -0,0 +1,144 @@
+package com.example.back2me;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * First step of a queued post: sends the encoded photo to Cloudinary and
+ * passes its URL on to {@link CreateItemWorker}. Every run of one post
+ * uses the same upload ID, and each acknowledged chunk is recorded in a
+ * file beside the photo, so a later run resumes after it rather than from
+ * the start. WorkManager drops progress data between runs, hence the file.
+ * The photo file is deleted once the upload succeeds or is given up on.
+ *
+ * Photos are encoded to at most {@link ImageEncoder#DEFAULT_MAX_BYTES},
+ * far below {@link ChunkedUploader#MIN_CHUNK_SIZE}, so today every upload
+ * is a single chunk and a retry starts over; resuming only takes effect
+ * for photos larger than one chunk.
+ */
+public class ImageUploadWorker extends Worker {
+
+    private static final String TAG = "ImageUploadWorker";
+
+    static final String KEY_IMAGE_PATH = "image_path";
+    static final String KEY_MIME_TYPE = "mime_type";
+    static final String KEY_UPLOAD_ID = "upload_id";
+    // Output, read by CreateItemWorker
+    static final String KEY_IMAGE_URL = "image_url";
+
+    // Runs of this step, each with its own chunk retries, before the post fails
+    private static final int MAX_RUNS = 8;
+
+    private volatile ChunkedUploader uploader;
+
+    public ImageUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    static Data inputFor(File imageFile, String mimeType, String uploadId) {
+        return new Data.Builder()
+                .putString(KEY_IMAGE_PATH, imageFile.getAbsolutePath())
+                .putString(KEY_MIME_TYPE, mimeType)
+                .putString(KEY_UPLOAD_ID, uploadId)
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String path = getInputData().getString(KEY_IMAGE_PATH);
+        File file = path != null ? new File(path) : null;
+        if (file == null || !file.isFile()) {
+            Log.e(TAG, "Photo to upload is missing: " + path);
+            return Result.failure();
+        }
+
+        ChunkedUploader current = CloudinaryHelper.newUploader();
+        uploader = current;
+        File offsetFile = offsetFile(file);
+        long startOffset = readOffset(offsetFile, file.length());
+        // Progress lands on the confirmed count only when a chunk has been acknowledged
+        ChunkedUploader.ProgressListener saveConfirmed = (bytesSent, totalBytes) -> {
+            if (bytesSent == current.getBytesConfirmed() && bytesSent < totalBytes) {
+                writeOffset(offsetFile, bytesSent);
+            }
+        };
+
+        try {
+            String imageUrl = CloudinaryHelper.uploadBlocking(current, file,
+                    getInputData().getString(KEY_MIME_TYPE), getInputData().getString(KEY_UPLOAD_ID),
+                    startOffset, saveConfirmed);
+            discard(file, offsetFile);
+            return Result.success(new Data.Builder().putString(KEY_IMAGE_URL, imageUrl).build());
+        } catch (ChunkedUploader.RejectedException e) {
+            Log.e(TAG, "Upload rejected: " + e.getMessage());
+            discard(file, offsetFile);
+            return Result.failure();
+        } catch (IOException e) {
+            if (isStopped()) {
+                // Constraints lapsed or the work was cancelled; WorkManager decides what next
+                return Result.retry();
+            }
+            if (getRunAttemptCount() + 1 >= MAX_RUNS) {
+                Log.e(TAG, "Giving up on upload after " + MAX_RUNS + " runs", e);
+                discard(file, offsetFile);
+                return Result.failure();
+            }
+            Log.w(TAG, "Upload failed at byte " + current.getBytesConfirmed() + ", will retry", e);
+            return Result.retry();
+        }
+    }
+
+    private static File offsetFile(File imageFile) {
+        return new File(imageFile.getPath() + ".offset");
+    }
+
+    // The confirmed byte count saved by an earlier run, 0 if there is none or it doesn't fit the file
+    private static long readOffset(File offsetFile, long fileLength) {
+        if (!offsetFile.isFile()) return 0;
+        try (BufferedReader in = new BufferedReader(new FileReader(offsetFile))) {
+            String line = in.readLine();
+            long offset = line != null ? Long.parseLong(line.trim()) : 0;
+            return offset > 0 && offset < fileLength ? offset : 0;
+        } catch (IOException | NumberFormatException e) {
+            Log.w(TAG, "Ignoring unreadable upload offset", e);
+            return 0;
+        }
+    }
+
+    private static void writeOffset(File offsetFile, long offset) {
+        try (OutputStream out = new FileOutputStream(offsetFile)) {
+            out.write(Long.toString(offset).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // The next run just starts further back
+            Log.w(TAG, "Could not save upload offset", e);
+        }
+    }
+
+    private static void discard(File imageFile, File offsetFile) {
+        imageFile.delete();
+        offsetFile.delete();
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        ChunkedUploader current = uploader;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.back2me;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Asks for more data once the last visible row comes within
+ * {@code prefetchDistance} rows of the end of the list.
+ */
+public class InfiniteScrollListener extends RecyclerView.OnScrollListener {
+
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    // Rows left below the viewport before the next page is requested
+    public static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    private final LinearLayoutManager layoutManager;
+    private final int prefetchDistance;
+    private final OnLoadMoreListener listener;
+
+    public InfiniteScrollListener(LinearLayoutManager layoutManager, OnLoadMoreListener listener) {
+        this(layoutManager, DEFAULT_PREFETCH_DISTANCE, listener);
+    }
+
+    public InfiniteScrollListener(LinearLayoutManager layoutManager, int prefetchDistance,
+                                  OnLoadMoreListener listener) {
+        this.layoutManager = layoutManager;
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        // Only react to forward scrolling
+        if (dx <= 0 && dy <= 0) return;
+
+        int totalCount = layoutManager.getItemCount();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible != RecyclerView.NO_POSITION && lastVisible >= totalCount - 1 - prefetchDistance) {
+            listener.onLoadMore();
+        }
+    }
+}
@@ -1,6 +1,17 @@
 package com.example.back2me;
 
+import com.example.back2me.mapper.DocumentId;
+import com.example.back2me.mapper.EpochMillis;
+import com.example.back2me.mapper.FirestoreDocument;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+@FirestoreDocument
 public class Item {
+    @DocumentId(stored = true)
     private String id;
     private String name;
     private String location;
@@ -9,6 +20,12 @@ public class Item {
     private String createdBy;
     private String createdDate;
     private String imageUrl;
+    // createdDate as epoch millis, parsed once so sorting and display never parse
+    @EpochMillis
+    private long createdAt;
+
+    // Stored field names changed since the item was loaded or last saved
+    private final Set<String> dirtyFields = new HashSet<>();
 
     // Empty constructor for Firebase
     public Item() {
@@ -25,6 +42,7 @@ public class Item {
         this.createdBy = createdBy;
         this.createdDate = createdDate;
         this.imageUrl = imageUrl;
+        this.createdAt = Timestamps.parseIso(createdDate);
     }
 
     // Getters
@@ -60,36 +78,82 @@ public class Item {
         return imageUrl;
     }
 
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
     // Setters
     public void setId(String id) {
         this.id = id;
     }
 
     public void setName(String name) {
+        markDirty("name", this.name, name);
         this.name = name;
     }
 
     public void setLocation(String location) {
+        markDirty("location", this.location, location);
         this.location = location;
     }
 
     public void setDescription(String description) {
+        markDirty("description", this.description, description);
         this.description = description;
     }
 
     public void setStatus(String status) {
+        markDirty("status", this.status, status);
         this.status = status;
     }
 
     public void setCreatedBy(String createdBy) {
+        markDirty("createdBy", this.createdBy, createdBy);
         this.createdBy = createdBy;
     }
 
     public void setCreatedDate(String createdDate) {
+        markDirty("createdDate", this.createdDate, createdDate);
         this.createdDate = createdDate;
+        setCreatedAt(Timestamps.parseIso(createdDate));
     }
 
     public void setImageUrl(String imageUrl) {
+        markDirty("imageUrl", this.imageUrl, imageUrl);
         this.imageUrl = imageUrl;
     }
+
+    public void setCreatedAt(long createdAt) {
+        markDirty("createdAt", this.createdAt, createdAt);
+        this.createdAt = createdAt;
+    }
+
+    // Copy with new status; the copy keeps this item's unsaved changes
+    public Item copyWithStatus(String newStatus) {
+        Item copy = new Item(id, name, location, description, status, createdBy, createdDate, imageUrl);
+        copy.createdAt = createdAt;
+        copy.dirtyFields.addAll(dirtyFields);
+        copy.setStatus(newStatus);
+        return copy;
+    }
+
+    // Dirty tracking, so updates only send what actually changed
+    public boolean isDirty() {
+        return !dirtyFields.isEmpty();
+    }
+
+    public Set<String> dirtyFields() {
+        return Collections.unmodifiableSet(dirtyFields);
+    }
+
+    // Call once the item matches what is stored
+    public void clearDirty() {
+        dirtyFields.clear();
+    }
+
+    private void markDirty(String field, Object oldValue, Object newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            dirtyFields.add(field);
+        }
+    }
 }
\ No newline at end of file
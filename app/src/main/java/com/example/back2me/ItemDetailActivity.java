@@ -15,11 +15,6 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
 public class ItemDetailActivity extends AppCompatActivity {
 
@@ -101,7 +96,7 @@ public class ItemDetailActivity extends AppCompatActivity {
         }
 
         // Date
-        String formattedDate = formatDate(item.getCreatedDate());
+        String formattedDate = Timestamps.formatDateTime(item.getCreatedAt());
         binding.textDate.setText(formattedDate);
 
         // Image
@@ -135,21 +130,6 @@ public class ItemDetailActivity extends AppCompatActivity {
         }
     }
 
-    private String formatDate(String isoDate) {
-        if (isoDate == null || isoDate.isEmpty()) return "";
-
-        try {
-            SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-            isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-            Date date = isoFormat.parse(isoDate);
-
-            SimpleDateFormat displayFormat = new SimpleDateFormat("MMM d, yyyy 'at' h:mm a", Locale.getDefault());
-            return displayFormat.format(date);
-        } catch (ParseException e) {
-            return isoDate;
-        }
-    }
-
     private void showClaimDialog() {
         if (currentItem == null) return;
 
@@ -192,9 +172,7 @@ public class ItemDetailActivity extends AppCompatActivity {
         claim.setMessage(message);
         claim.setStatus("pending");
 
-        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        claim.setCreatedDate(isoFormat.format(new Date()));
+        claim.setCreatedDate(Timestamps.nowIso());
 
         ClaimRepository.createClaim(claim, new ClaimRepository.OperationCallback() {
             @Override
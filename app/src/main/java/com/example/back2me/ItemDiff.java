@@ -0,0 +1,36 @@
+package com.example.back2me;
+
+import java.util.Objects;
+
+/**
+ * Content comparison shared by the adapters that show {@link Item} rows.
+ */
+public final class ItemDiff {
+
+    // Payload for a row whose status is the only thing that changed
+    public static final Object PAYLOAD_STATUS = "status";
+
+    private ItemDiff() {
+    }
+
+    public static boolean contentsTheSame(Item oldItem, Item newItem) {
+        return Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                && sameExceptStatus(oldItem, newItem);
+    }
+
+    public static Object changePayload(Item oldItem, Item newItem) {
+        if (!Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                && sameExceptStatus(oldItem, newItem)) {
+            return PAYLOAD_STATUS;
+        }
+        return null;
+    }
+
+    private static boolean sameExceptStatus(Item oldItem, Item newItem) {
+        return Objects.equals(oldItem.getName(), newItem.getName())
+                && Objects.equals(oldItem.getLocation(), newItem.getLocation())
+                && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                && oldItem.getCreatedAt() == newItem.getCreatedAt()
+                && Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl());
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.back2me;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Live list of items for the home screen, newest first.
+ *
+ * The newest page is kept live by one snapshot listener; older pages are
+ * fetched once on demand. Stopping the feed keeps what was loaded, and a
+ * restart re-attaches the listener, which resumes from where it left off,
+ * so coming back to the screen only downloads the documents that changed
+ * in the meantime. An item that leaves the live page because newer ones
+ * arrived stays on screen at the top of the older part; one that leaves
+ * it from inside the page was deleted and is dropped.
+ *
+ * Before the first snapshot the feed shows the local mirror's newest page,
+ * so a cold start has something on screen at once. Older pages aren't
+ * listened to, so a restart re-reads them in one query from the end of
+ * the live page; items deleted or edited while the screen was hidden
+ * don't linger with stale data.
+ */
+public class ItemFeed {
+
+    public interface Listener {
+        // The full ordered list; a new list on every call
+        void onItemsChanged(List<Item> items);
+        void onError(Exception e);
+    }
+
+    private final int pageSize;
+    private final Listener listener;
+
+    private ListenerRegistration registration;
+    private List<Item> live = new ArrayList<>();
+    private List<Item> older = new ArrayList<>();
+    // Document of the bottom-most item shown, for the next page
+    private DocumentSnapshot cursor;
+    private boolean hasMore = false;
+    private boolean loadingMore = false;
+    private boolean loaded = false;
+    // Set on a restart with older pages shown, until they have been read again
+    private boolean refreshOlder = false;
+    // Bumped on every attach and detach so late callbacks are dropped
+    private int generation = 0;
+
+    public ItemFeed(int pageSize, Listener listener) {
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    // Attach the listener, keeping anything already loaded
+    public void start() {
+        if (registration != null) return;
+
+        final int startGeneration = ++generation;
+        loadingMore = false;
+        refreshOlder = !older.isEmpty();
+
+        if (!loaded) {
+            ItemRepository.getCachedItemsPage(pageSize, new ItemRepository.ItemsCallback() {
+                @Override
+                public void onSuccess(List<Item> items) {
+                    // Too late once the listener has answered
+                    if (startGeneration != generation || loaded || items.isEmpty()) return;
+                    live = items;
+                    publish();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    // The listener's snapshot follows regardless
+                }
+            });
+        }
+
+        registration = ItemRepository.listenToItems(pageSize, new ItemRepository.PageCallback() {
+            @Override
+            public void onSuccess(List<Item> items, DocumentSnapshot lastDocument, boolean more) {
+                if (startGeneration != generation) return;
+                onLiveChanged(items, lastDocument, more);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        generation++;
+    }
+
+    // Fetch the page after the bottom-most item; ignored while busy or at the end
+    public void loadMore() {
+        if (loadingMore || !hasMore || cursor == null || registration == null) return;
+
+        loadingMore = true;
+        final int requestGeneration = generation;
+
+        ItemRepository.getItemsPage(cursor, pageSize, new ItemRepository.PageCallback() {
+            @Override
+            public void onSuccess(List<Item> items, DocumentSnapshot lastDocument, boolean more) {
+                if (requestGeneration != generation) return;
+                loadingMore = false;
+                hasMore = more;
+                if (items.isEmpty()) return;
+
+                cursor = lastDocument;
+                Set<String> shown = idsOf(live);
+                shown.addAll(idsOf(older));
+                for (Item item : items) {
+                    if (!shown.contains(item.getId())) {
+                        older.add(item);
+                    }
+                }
+                publish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (requestGeneration != generation) return;
+                loadingMore = false;
+                listener.onError(e);
+            }
+        });
+    }
+
+    private void onLiveChanged(List<Item> items, DocumentSnapshot lastDocument, boolean more) {
+        if (!loaded) {
+            // Items from the mirror were only a placeholder; none of them was pushed out
+            live = new ArrayList<>();
+        }
+        Set<String> liveIds = idsOf(items);
+        // Creation dates never change, so anything older than a full page's last item was pushed out
+        long oldestLive = more && !items.isEmpty() ? items.get(items.size() - 1).getCreatedAt() : Long.MIN_VALUE;
+
+        List<Item> pushedOut = new ArrayList<>();
+        for (Item item : live) {
+            if (!liveIds.contains(item.getId()) && item.getCreatedAt() <= oldestLive) {
+                pushedOut.add(item);
+            }
+        }
+
+        Set<String> pushedOutIds = idsOf(pushedOut);
+        List<Item> newOlder = new ArrayList<>(pushedOut.size() + older.size());
+        newOlder.addAll(pushedOut);
+        for (Item item : older) {
+            // After a deletion the live page reaches down into the older part
+            if (!liveIds.contains(item.getId()) && !pushedOutIds.contains(item.getId())) {
+                newOlder.add(item);
+            }
+        }
+
+        if (newOlder.isEmpty()) {
+            cursor = lastDocument;
+            hasMore = more;
+        }
+
+        live = items;
+        older = newOlder;
+        loaded = true;
+        publish();
+
+        if (refreshOlder) {
+            refreshOlder = false;
+            reloadOlder(lastDocument, more);
+        }
+    }
+
+    // Replace the older pages with a fresh read of as many items after the live page
+    private void reloadOlder(DocumentSnapshot lastLive, boolean more) {
+        if (lastLive == null || !more) {
+            older = new ArrayList<>();
+            cursor = lastLive;
+            hasMore = more;
+            publish();
+            return;
+        }
+
+        loadingMore = true;
+        final int requestGeneration = generation;
+
+        ItemRepository.getItemsPage(lastLive, Math.max(older.size(), pageSize), new ItemRepository.PageCallback() {
+            @Override
+            public void onSuccess(List<Item> items, DocumentSnapshot lastDocument, boolean more) {
+                if (requestGeneration != generation) return;
+                loadingMore = false;
+                Set<String> liveIds = idsOf(live);
+                List<Item> fresh = new ArrayList<>(items.size());
+                for (Item item : items) {
+                    if (!liveIds.contains(item.getId())) {
+                        fresh.add(item);
+                    }
+                }
+                older = fresh;
+                cursor = lastDocument;
+                hasMore = more;
+                publish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (requestGeneration != generation) return;
+                // Keep the stale pages rather than an empty screen
+                loadingMore = false;
+                listener.onError(e);
+            }
+        });
+    }
+
+    private void publish() {
+        List<Item> all = new ArrayList<>(live.size() + older.size());
+        all.addAll(live);
+        all.addAll(older);
+        listener.onItemsChanged(all);
+    }
+
+    private static Set<String> idsOf(List<Item> items) {
+        Set<String> ids = new HashSet<>();
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+}
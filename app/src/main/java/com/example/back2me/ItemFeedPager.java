@@ -0,0 +1,103 @@
+package com.example.back2me;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+
+/**
+ * Walks the items feed one page at a time, keeping the Firestore cursor
+ * between calls so each request only downloads the next page.
+ *
+ * The first page is shown from the local mirror while the server's is on
+ * its way; the server's first page then replaces it.
+ */
+public class ItemFeedPager {
+
+    public interface PageListener {
+        void onPageLoaded(List<Item> items, boolean firstPage);
+        void onError(Exception e);
+    }
+
+    private final int pageSize;
+
+    private DocumentSnapshot cursor;
+    private boolean loading = false;
+    private boolean hasMore = true;
+    // Set once the server's answer for the current first page has arrived
+    private boolean firstPageFetched = false;
+    // Bumped on reset so responses for an abandoned feed are dropped
+    private int generation = 0;
+
+    public ItemFeedPager() {
+        this(ItemRepository.DEFAULT_PAGE_SIZE);
+    }
+
+    public ItemFeedPager(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    // Start again from the newest item
+    public void reset() {
+        cursor = null;
+        loading = false;
+        hasMore = true;
+        firstPageFetched = false;
+        generation++;
+    }
+
+    // Load the next page; ignored while a page is in flight or the feed is exhausted
+    public void loadNextPage(PageListener listener) {
+        if (loading || !hasMore) return;
+
+        loading = true;
+        final int requestGeneration = generation;
+        final boolean firstPage = cursor == null;
+
+        if (firstPage) {
+            ItemRepository.getCachedItemsPage(pageSize, new ItemRepository.ItemsCallback() {
+                @Override
+                public void onSuccess(List<Item> items) {
+                    // Too late if the server already answered
+                    if (requestGeneration != generation || firstPageFetched || items.isEmpty()) return;
+                    listener.onPageLoaded(items, true);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    // The server's page follows regardless
+                }
+            });
+        }
+
+        ItemRepository.getItemsPage(cursor, pageSize, new ItemRepository.PageCallback() {
+            @Override
+            public void onSuccess(List<Item> items, DocumentSnapshot lastDocument, boolean more) {
+                if (requestGeneration != generation) return;
+                loading = false;
+                firstPageFetched = true;
+                cursor = lastDocument;
+                hasMore = more;
+                listener.onPageLoaded(items, firstPage);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (requestGeneration != generation) return;
+                loading = false;
+                listener.onError(e);
+            }
+        });
+    }
+}
@@ -14,17 +14,15 @@ import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 
 import java.util.List;
 
-public class ItemGridAdapter extends RecyclerView.Adapter<ItemGridAdapter.ItemViewHolder> {
+public class ItemGridAdapter extends RowListAdapter<Item, ItemRow, ItemGridAdapter.ItemViewHolder> {
 
-    private final List<Item> items;
     private final OnItemClickListener listener;
 
     public interface OnItemClickListener {
         void onItemClick(Item item);
     }
 
-    public ItemGridAdapter(List<Item> items, OnItemClickListener listener) {
-        this.items = items;
+    public ItemGridAdapter(OnItemClickListener listener) {
         this.listener = listener;
     }
 
@@ -37,35 +35,46 @@ public class ItemGridAdapter extends RecyclerView.Adapter<ItemGridAdapter.ItemVi
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ItemViewHolder holder, int position) {
-        Item item = items.get(position);
-
-        // Set item name
-        holder.textName.setText(item.getName());
-
-        // Set location
-        holder.textLocation.setText(item.getLocation());
-
-        // Set status badge
-        String status = item.getStatus();
-        if (status != null) {
-            if (status.equalsIgnoreCase("lost")) {
-                holder.textStatus.setText(R.string.status_lost);
-                holder.textStatus.setBackgroundResource(R.drawable.badge_lost);
-            } else if (status.equalsIgnoreCase("found")) {
-                holder.textStatus.setText(R.string.status_found);
-                holder.textStatus.setBackgroundResource(R.drawable.badge_found);
-            } else if (status.equalsIgnoreCase("resolved")) {
-                holder.textStatus.setText(R.string.status_resolved);
-                holder.textStatus.setBackgroundResource(R.drawable.badge_resolved);
-            }
+    protected ItemRow buildRow(Item item) {
+        return ItemRow.from(item);
+    }
+
+    @Override
+    protected String getItemKey(ItemRow row) {
+        return row.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(ItemRow oldRow, ItemRow newRow) {
+        return oldRow.sameContents(newRow);
+    }
+
+    @Override
+    protected Object getChangePayload(ItemRow oldRow, ItemRow newRow) {
+        return oldRow.onlyStatusDiffers(newRow) ? ItemDiff.PAYLOAD_STATUS : null;
+    }
+
+    @Override
+    protected void onBindPayloads(@NonNull ItemViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(ItemDiff.PAYLOAD_STATUS)) {
+            bindStatus(holder, getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
         }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ItemViewHolder holder, int position) {
+        ItemRow row = getItem(position);
+
+        holder.textName.setText(row.getName());
+        holder.textLocation.setText(row.getLocation());
+        bindStatus(holder, row);
 
         // Load image with Glide
-        String imageUrl = item.getImageUrl();
-        if (imageUrl != null && !imageUrl.isEmpty()) {
+        if (row.getImageUrl() != null) {
             Glide.with(holder.itemView.getContext())
-                    .load(imageUrl)
+                    .load(row.getImageUrl())
                     .placeholder(R.drawable.placeholder_image)
                     .error(R.drawable.placeholder_image)
                     .centerCrop()
@@ -78,14 +87,16 @@ public class ItemGridAdapter extends RecyclerView.Adapter<ItemGridAdapter.ItemVi
         // Click listener
         holder.itemView.setOnClickListener(v -> {
             if (listener != null) {
-                listener.onItemClick(item);
+                listener.onItemClick(row.getItem());
             }
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
+    private void bindStatus(ItemViewHolder holder, ItemRow row) {
+        if (row.getStatusLabel() != 0) {
+            holder.textStatus.setText(row.getStatusLabel());
+            holder.textStatus.setBackgroundResource(row.getStatusBadge());
+        }
     }
 
     public static class ItemViewHolder extends RecyclerView.ViewHolder {
@@ -12,35 +12,18 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
-public class ItemListAdapter extends RecyclerView.Adapter<ItemListAdapter.ItemViewHolder> {
+public class ItemListAdapter extends RowListAdapter<Item, ItemRow, ItemListAdapter.ItemViewHolder> {
 
-    private final List<Item> items;
     private final OnItemClickListener listener;
 
-    private final SimpleDateFormat isoFormat;
-    private final SimpleDateFormat displayDateFormat;
-    private final SimpleDateFormat displayTimeFormat;
-
     public interface OnItemClickListener {
         void onItemClick(Item item);
     }
 
-    public ItemListAdapter(List<Item> items, OnItemClickListener listener) {
-        this.items = items;
+    public ItemListAdapter(OnItemClickListener listener) {
         this.listener = listener;
-
-        // Date formatters
-        isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        displayDateFormat = new SimpleDateFormat("MMM d, yyyy", Locale.getDefault());
-        displayTimeFormat = new SimpleDateFormat("hh:mm a", Locale.getDefault());
     }
 
     @NonNull
@@ -52,50 +35,50 @@ public class ItemListAdapter extends RecyclerView.Adapter<ItemListAdapter.ItemVi
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ItemViewHolder holder, int position) {
-        Item item = items.get(position);
-
-        // Set item name
-        holder.textName.setText(item.getName());
-
-        // Set location
-        holder.textLocation.setText(item.getLocation());
-
-        // Set status badge
-        String status = item.getStatus();
-        if (status != null) {
-            if (status.equalsIgnoreCase("lost")) {
-                holder.textStatus.setText(R.string.status_lost);
-                holder.textStatus.setBackgroundResource(R.drawable.badge_lost);
-            } else if (status.equalsIgnoreCase("found")) {
-                holder.textStatus.setText(R.string.status_found);
-                holder.textStatus.setBackgroundResource(R.drawable.badge_found);
-            } else if (status.equalsIgnoreCase("resolved")) {
-                holder.textStatus.setText(R.string.status_resolved);
-                holder.textStatus.setBackgroundResource(R.drawable.badge_resolved);
-            }
-        }
+    protected ItemRow buildRow(Item item) {
+        return ItemRow.from(item);
+    }
 
-        // Format and set date/time
-        String dateStr = item.getCreatedDate();
-        if (dateStr != null && !dateStr.isEmpty()) {
-            try {
-                Date date = isoFormat.parse(dateStr);
-                if (date != null) {
-                    holder.textDate.setText(displayDateFormat.format(date));
-                    holder.textTime.setText(displayTimeFormat.format(date));
-                }
-            } catch (ParseException e) {
-                holder.textDate.setText("");
-                holder.textTime.setText("");
-            }
+    @Override
+    protected String getItemKey(ItemRow row) {
+        return row.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(ItemRow oldRow, ItemRow newRow) {
+        return oldRow.sameContents(newRow);
+    }
+
+    @Override
+    protected Object getChangePayload(ItemRow oldRow, ItemRow newRow) {
+        return oldRow.onlyStatusDiffers(newRow) ? ItemDiff.PAYLOAD_STATUS : null;
+    }
+
+    @Override
+    protected void onBindPayloads(@NonNull ItemViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(ItemDiff.PAYLOAD_STATUS)) {
+            bindStatus(holder, getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
         }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ItemViewHolder holder, int position) {
+        ItemRow row = getItem(position);
+
+        holder.textName.setText(row.getName());
+        holder.textLocation.setText(row.getLocation());
+        bindStatus(holder, row);
+
+        // Date/time
+        holder.textDate.setText(row.getDate());
+        holder.textTime.setText(row.getTime());
 
         // Load image with Glide
-        String imageUrl = item.getImageUrl();
-        if (imageUrl != null && !imageUrl.isEmpty()) {
+        if (row.getImageUrl() != null) {
             Glide.with(holder.itemView.getContext())
-                    .load(imageUrl)
+                    .load(row.getImageUrl())
                     .placeholder(R.drawable.placeholder_image)
                     .error(R.drawable.placeholder_image)
                     .centerCrop()
@@ -108,14 +91,16 @@ public class ItemListAdapter extends RecyclerView.Adapter<ItemListAdapter.ItemVi
         // Click listener
         holder.itemView.setOnClickListener(v -> {
             if (listener != null) {
-                listener.onItemClick(item);
+                listener.onItemClick(row.getItem());
             }
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
+    private void bindStatus(ItemViewHolder holder, ItemRow row) {
+        if (row.getStatusLabel() != 0) {
+            holder.textStatus.setText(row.getStatusLabel());
+            holder.textStatus.setBackgroundResource(row.getStatusBadge());
+        }
     }
 
     public static class ItemViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,171 @@
+package com.example.back2me;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts new items in the background, so the user can leave the screen as
+ * soon as the post is queued.
+ *
+ * The photo is encoded straight away into app storage, because neither a
+ * camera bitmap nor a gallery URI grant outlives the process. WorkManager
+ * then runs {@link ImageUploadWorker} followed by {@link CreateItemWorker}
+ * as one persisted chain, which survives the app being closed or killed
+ * and waits for the network (unmetered only, if the user asked for that).
+ * The item ID and upload ID are fixed when the post is queued, so a
+ * retried step writes over its own earlier attempt instead of adding a
+ * second item or image, and the chain is unique per item.
+ */
+public final class ItemPostQueue {
+
+    private static final String TAG = "ItemPostQueue";
+
+    // Shared with SettingsActivity
+    static final String PREFS_NAME = "app_settings";
+    static final String KEY_UPLOAD_ON_WIFI_ONLY = "upload_on_wifi_only";
+
+    // Encoded photos wait here until their upload succeeds or gives up
+    private static final String PENDING_DIRECTORY = "pending_posts";
+    private static final String WORK_TAG = "post_item";
+    private static final long BACKOFF_SECONDS = 30;
+
+    private static final ExecutorService prepareExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Both methods are called on the main thread
+    public interface QueueCallback {
+        void onQueued(String itemId);
+        void onError(String errorMessage);
+    }
+
+    private ItemPostQueue() {
+    }
+
+    /**
+     * Queue {@code item} for posting with the photo in {@code bitmap} or
+     * {@code imageUri}, or none if both are null. The callback fires once
+     * the photo is encoded and the work is persisted; the upload and the
+     * item write happen later.
+     */
+    public static void post(Context context, Item item, Bitmap bitmap, Uri imageUri, QueueCallback callback) {
+        Context appContext = context.getApplicationContext();
+        if (item.getId() == null || item.getId().isEmpty()) {
+            item.setId(ItemRepository.newItemId());
+        }
+
+        prepareExecutor.execute(() -> {
+            File imageFile = null;
+            String mimeType = null;
+            try {
+                if (bitmap != null || imageUri != null) {
+                    Bitmap source = bitmap != null
+                            ? bitmap
+                            : ImageDownsampler.decode(appContext, imageUri, CloudinaryHelper.DEFAULT_MAX_EDGE_PX);
+                    ImageEncoder.EncodedImage image = ImageEncoder.encode(source);
+                    if (source != bitmap) {
+                        source.recycle();
+                    }
+                    imageFile = writePendingFile(appContext, item.getId(), image);
+                    mimeType = image.getMimeType();
+                }
+                enqueue(appContext, item, imageFile, mimeType);
+            } catch (IOException | OutOfMemoryError e) {
+                Log.e(TAG, "Could not queue item " + item.getId(), e);
+                if (imageFile != null) {
+                    imageFile.delete();
+                }
+                String message = "Error reading image: " + e.getMessage();
+                mainHandler.post(() -> callback.onError(message));
+                return;
+            }
+            mainHandler.post(() -> callback.onQueued(item.getId()));
+        });
+    }
+
+    // Drop every queued post and its photo, e.g. when the user signs out
+    public static void cancelAll(Context context) {
+        Context appContext = context.getApplicationContext();
+        WorkManager.getInstance(appContext).cancelAllWorkByTag(WORK_TAG);
+        prepareExecutor.execute(() -> {
+            File[] files = new File(appContext.getFilesDir(), PENDING_DIRECTORY).listFiles();
+            if (files == null) return;
+            for (File file : files) {
+                file.delete();
+            }
+        });
+    }
+
+    private static void enqueue(Context context, Item item, File imageFile, String mimeType) {
+        Constraints connected = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest create = new OneTimeWorkRequest.Builder(CreateItemWorker.class)
+                .setInputData(CreateItemWorker.inputFor(item))
+                .setConstraints(connected)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .addTag(WORK_TAG)
+                .build();
+
+        // KEEP: a post already queued under this item ID is never queued again
+        WorkManager workManager = WorkManager.getInstance(context);
+        String uniqueName = WORK_TAG + "_" + item.getId();
+        if (imageFile == null) {
+            workManager.enqueueUniqueWork(uniqueName, ExistingWorkPolicy.KEEP, create);
+            Log.d(TAG, "Queued item " + item.getId());
+            return;
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        NetworkType uploadNetwork = prefs.getBoolean(KEY_UPLOAD_ON_WIFI_ONLY, false)
+                ? NetworkType.UNMETERED
+                : NetworkType.CONNECTED;
+        OneTimeWorkRequest upload = new OneTimeWorkRequest.Builder(ImageUploadWorker.class)
+                .setInputData(ImageUploadWorker.inputFor(imageFile, mimeType, UUID.randomUUID().toString()))
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(uploadNetwork).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .addTag(WORK_TAG)
+                .build();
+
+        workManager.beginUniqueWork(uniqueName, ExistingWorkPolicy.KEEP, upload)
+                .then(create)
+                .enqueue();
+        Log.d(TAG, "Queued item " + item.getId() + " with " + imageFile.length() + " byte photo");
+    }
+
+    private static File writePendingFile(Context context, String itemId, ImageEncoder.EncodedImage image)
+            throws IOException {
+        File directory = new File(context.getFilesDir(), PENDING_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = new File(directory, itemId + "." + image.getExtension());
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(image.getBytes());
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return file;
+    }
+}
@@ -1,21 +1,40 @@
 package com.example.back2me;
 
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class ItemRepository {
 
+    private static final String TAG = "ItemRepository";
     private static final String COLLECTION_NAME = "items";
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private static final ItemSearchIndex searchIndex = ItemSearchIndex.getInstance();
+
+    // Number of items fetched per feed page when the caller has no preference
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    // Items posted elsewhere after a full load only reach the index through the feeds, so reload after this
+    private static final long SEARCH_INDEX_MAX_AGE_MS = TimeUnit.MINUTES.toMillis(10);
+    // When the search index last received the whole collection, 0 if never
+    private static volatile long searchIndexLoadedAt = 0;
+
+    // Sync mark of the whole collection in the local mirror
+    private static final String FEED_ALL_ITEMS = "all_items";
+    // Delta syncs only see new items, so reload everything this often to catch edits and deletes
+    private static final long FULL_SYNC_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
 
     // Callback interfaces
     public interface ItemsCallback {
@@ -23,6 +42,18 @@ public class ItemRepository {
         void onError(Exception e);
     }
 
+    public interface IndexCallback {
+        // The mirror's items are in the index; only called when it has any, before the sync
+        void onCachedLoaded();
+        void onSuccess();
+        void onError(Exception e);
+    }
+
+    public interface PageCallback {
+        void onSuccess(List<Item> items, DocumentSnapshot lastDocument, boolean hasMore);
+        void onError(Exception e);
+    }
+
     public interface SingleItemCallback {
         void onSuccess(Item item);
         void onError(Exception e);
@@ -43,46 +74,214 @@ public class ItemRepository {
         void onError(Exception e);
     }
 
-    // Get all items (sorted locally to avoid index requirement)
-    public static void getAllItems(ItemsCallback callback) {
+    // Listen to the newest items. Every snapshot delivers the whole ordered
+    // window, but only documents that changed are converted again, and only
+    // those are written to the local mirror.
+    public static ListenerRegistration listenToItems(int limit, PageCallback callback) {
+        final List<Item> items = new ArrayList<>();
+        return db.collection(COLLECTION_NAME)
+                .orderBy("createdDate", Query.Direction.DESCENDING)
+                .limit(limit)
+                .addSnapshotListener((queryDocumentSnapshots, e) -> {
+                    if (e != null) {
+                        callback.onError(e);
+                        return;
+                    }
+                    if (queryDocumentSnapshots == null) return;
+
+                    List<Item> changed = new ArrayList<>();
+                    for (DocumentChange change : queryDocumentSnapshots.getDocumentChanges()) {
+                        switch (change.getType()) {
+                            case ADDED:
+                                items.add(change.getNewIndex(), documentToItem(change.getDocument()));
+                                changed.add(items.get(change.getNewIndex()));
+                                break;
+                            case MODIFIED:
+                                items.remove(change.getOldIndex());
+                                items.add(change.getNewIndex(), documentToItem(change.getDocument()));
+                                changed.add(items.get(change.getNewIndex()));
+                                break;
+                            case REMOVED:
+                                // Deleted or pushed out by newer items; the mirror can't tell which
+                                items.remove(change.getOldIndex());
+                                break;
+                        }
+                    }
+                    if (!changed.isEmpty()) {
+                        searchIndex.addAll(changed);
+                        LocalStore store = LocalStore.getInstance();
+                        if (store != null) {
+                            store.putItems(changed);
+                        }
+                    }
+
+                    List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                    DocumentSnapshot last = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                    callback.onSuccess(new ArrayList<>(items), last, documents.size() == limit);
+                });
+    }
+
+    // The newest page held by the local mirror, empty if there is none
+    public static void getCachedItemsPage(int pageSize, ItemsCallback callback) {
+        LocalStore store = LocalStore.getInstance();
+        if (store == null) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+        store.queryItems(null, null, pageSize, items -> {
+            searchIndex.addAll(items);
+            callback.onSuccess(items);
+        });
+    }
+
+    // True when the search index holds the whole collection, recently enough to answer a query on its own
+    public static boolean isSearchIndexComplete() {
+        return searchIndexLoadedAt != 0
+                && System.currentTimeMillis() - searchIndexLoadedAt < SEARCH_INDEX_MAX_AGE_MS;
+    }
+
+    /**
+     * Bring the search index up to the whole collection, so a query also
+     * finds items no feed has paged in. The mirror's items go in first, so
+     * a cold start can search at once. The sync then downloads only items
+     * created since the stored high-water mark, except for a full reload
+     * every {@link #FULL_SYNC_INTERVAL_MS}, because a createdDate mark
+     * cannot see edits or deletes made elsewhere.
+     */
+    public static void loadSearchIndex(IndexCallback callback) {
+        LocalStore store = LocalStore.getInstance();
+        if (store == null) {
+            fetchAllItems(callback);
+            return;
+        }
+
+        store.queryItems(null, null, 0, cached -> {
+            if (!cached.isEmpty()) {
+                searchIndex.addAll(cached);
+                callback.onCachedLoaded();
+            }
+            store.getSyncMark(FEED_ALL_ITEMS, (highWaterMark, syncedAt) -> {
+                boolean fullSync = highWaterMark == null || cached.isEmpty()
+                        || System.currentTimeMillis() - syncedAt > FULL_SYNC_INTERVAL_MS;
+                if (fullSync) {
+                    fetchAllItems(callback);
+                } else {
+                    fetchNewItems(highWaterMark, syncedAt, callback);
+                }
+            });
+        });
+    }
+
+    // Download the whole collection and make it the index's and the mirror's contents
+    private static void fetchAllItems(IndexCallback callback) {
         db.collection(COLLECTION_NAME)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     List<Item> items = new ArrayList<>();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Item item = documentToItem(document);
-                        items.add(item);
+                        items.add(documentToItem(document));
                     }
-                    // Sort locally by createdDate descending
-                    sortItemsByDateDesc(items);
-                    callback.onSuccess(items);
+                    // Replace rather than add, so items deleted elsewhere stop matching
+                    searchIndex.replaceAll(items);
+                    searchIndexLoadedAt = System.currentTimeMillis();
+
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.replaceItems(null, null, items);
+                        store.putSyncMark(FEED_ALL_ITEMS, newestCreatedDate(items, null),
+                                System.currentTimeMillis());
+                    }
+                    callback.onSuccess();
                 })
                 .addOnFailureListener(callback::onError);
     }
 
-    // Get items by status (sorted locally)
-    public static void getItemsByStatus(String status, ItemsCallback callback) {
+    // Download only items created at or after the high-water mark; the mark's own
+    // second is asked for again so items posted in that same second aren't missed.
+    // A range on one field only needs the automatic index.
+    private static void fetchNewItems(String highWaterMark, long syncedAt, IndexCallback callback) {
         db.collection(COLLECTION_NAME)
-                .whereEqualTo("status", status)
+                .whereGreaterThanOrEqualTo("createdDate", highWaterMark)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Item> items = new ArrayList<>();
+                    List<Item> added = new ArrayList<>();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Item item = documentToItem(document);
-                        items.add(item);
+                        added.add(documentToItem(document));
                     }
-                    // Sort locally
-                    sortItemsByDateDesc(items);
-                    callback.onSuccess(items);
+                    searchIndex.addAll(added);
+                    searchIndexLoadedAt = System.currentTimeMillis();
+
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null && !added.isEmpty()) {
+                        store.putItems(added);
+                        // Keep the time of the last full sync, so the next one still comes on schedule
+                        store.putSyncMark(FEED_ALL_ITEMS, newestCreatedDate(added, highWaterMark), syncedAt);
+                    }
+                    callback.onSuccess();
                 })
                 .addOnFailureListener(callback::onError);
     }
 
-    // Get items by user (sorted locally to avoid index requirement)
-    public static void getItemsByUser(String userId, ItemsCallback callback) {
-        db.collection(COLLECTION_NAME)
-                .whereEqualTo("createdBy", userId)
+    // Get one page of items, newest first, starting after the given cursor.
+    // Ordering on a single field only needs the automatic index.
+    public static void getItemsPage(DocumentSnapshot cursor, int pageSize, PageCallback callback) {
+        Query query = db.collection(COLLECTION_NAME)
+                .orderBy("createdDate", Query.Direction.DESCENDING);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+
+        query.limit(pageSize)
                 .get()
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                    List<Item> items = new ArrayList<>(documents.size());
+                    for (DocumentSnapshot document : documents) {
+                        items.add(documentToItem(document));
+                    }
+                    DocumentSnapshot lastDocument = documents.isEmpty()
+                            ? cursor
+                            : documents.get(documents.size() - 1);
+                    searchIndex.addAll(items);
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.putItems(items);
+                    }
+                    callback.onSuccess(items, lastDocument, documents.size() >= pageSize);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    // Get items by user (sorted locally to avoid index requirement); may call back twice, see loadMirrored
+    public static void getItemsByUser(String userId, ItemsCallback callback) {
+        loadMirrored(db.collection(COLLECTION_NAME).whereEqualTo("createdBy", userId),
+                LocalStore.ITEM_CREATED_BY, userId, callback);
+    }
+
+    /**
+     * Answer from the local mirror's rows matching {@code column}, if any,
+     * then run {@code query} and replace those rows with its result. With
+     * the mirror filled the callback is called twice.
+     */
+    private static void loadMirrored(Query query, String column, String value, ItemsCallback callback) {
+        LocalStore store = LocalStore.getInstance();
+        if (store == null) {
+            fetchMirrored(query, column, value, null, callback);
+            return;
+        }
+
+        store.queryItems(column, value, 0, cached -> {
+            if (!cached.isEmpty()) {
+                searchIndex.addAll(cached);
+                callback.onSuccess(cached);
+            }
+            fetchMirrored(query, column, value, cached, callback);
+        });
+    }
+
+    private static void fetchMirrored(Query query, String column, String value, List<Item> cached,
+                                      ItemsCallback callback) {
+        query.get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     List<Item> items = new ArrayList<>();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
@@ -91,76 +290,106 @@ public class ItemRepository {
                     }
                     // Sort locally by createdDate descending
                     sortItemsByDateDesc(items);
+                    searchIndex.addAll(items);
+
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.replaceItems(column, value, items);
+                    }
                     callback.onSuccess(items);
                 })
-                .addOnFailureListener(callback::onError);
+                .addOnFailureListener(e -> onFetchFailed(e, cached, callback));
     }
 
-    // Get single item by ID
+    // Get single item by ID, falling back to the local mirror when the server can't be reached
     public static void getItemById(String itemId, SingleItemCallback callback) {
+        LocalStore store = LocalStore.getInstance();
         db.collection(COLLECTION_NAME)
                 .document(itemId)
                 .get()
                 .addOnSuccessListener(document -> {
                     if (document.exists()) {
                         Item item = documentToItem(document);
+                        searchIndex.put(item);
+                        if (store != null) {
+                            store.putItem(item);
+                        }
                         callback.onSuccess(item);
                     } else {
+                        if (store != null) {
+                            store.deleteItem(itemId);
+                        }
                         callback.onError(new Exception("Item not found"));
                     }
                 })
-                .addOnFailureListener(callback::onError);
+                .addOnFailureListener(e -> {
+                    if (store == null) {
+                        callback.onError(e);
+                        return;
+                    }
+                    store.getItem(itemId, cached -> {
+                        if (cached.isEmpty()) {
+                            callback.onError(e);
+                        } else {
+                            Log.w(TAG, "Showing stored copy of item " + itemId, e);
+                            callback.onSuccess(cached.get(0));
+                        }
+                    });
+                });
     }
 
-    // Search items (sorted locally)
-    public static void searchItems(String query, ItemsCallback callback) {
-        db.collection(COLLECTION_NAME)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Item> items = new ArrayList<>();
-                    String lowerQuery = query.toLowerCase();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Item item = documentToItem(document);
-                        if (item.getName().toLowerCase().contains(lowerQuery) ||
-                                item.getLocation().toLowerCase().contains(lowerQuery) ||
-                                item.getDescription().toLowerCase().contains(lowerQuery)) {
-                            items.add(item);
-                        }
-                    }
-                    // Sort locally
-                    sortItemsByDateDesc(items);
-                    callback.onSuccess(items);
-                })
-                .addOnFailureListener(callback::onError);
+    // New item ID, generated on the client without a round trip
+    public static String newItemId() {
+        return db.collection(COLLECTION_NAME).document().getId();
     }
 
-    // Create item
+    /**
+     * Create item. An item without an ID gets a new one; an item that
+     * already has one is written to that document, so retrying a create
+     * never makes a second copy.
+     */
     public static void createItem(Item item, CreateCallback callback) {
-        Map<String, Object> itemData = itemToMap(item);
+        // Pick the ID up front so the document, id field included, is written once
+        if (item.getId() == null || item.getId().isEmpty()) {
+            item.setId(newItemId());
+        }
+        DocumentReference documentReference = db.collection(COLLECTION_NAME).document(item.getId());
+        Map<String, Object> itemData = ItemMapper.toMap(item);
 
-        db.collection(COLLECTION_NAME)
-                .add(itemData)
-                .addOnSuccessListener(documentReference -> {
-                    item.setId(documentReference.getId());
-                    documentReference.update("id", documentReference.getId());
+        documentReference
+                .set(itemData)
+                .addOnSuccessListener(aVoid -> {
+                    item.clearDirty();
+                    searchIndex.put(item);
+                    putInStore(item);
                     callback.onSuccess(item);
                 })
                 .addOnFailureListener(callback::onError);
     }
 
-    // Update item
+    // Update item, sending only the fields changed since it was loaded
     public static void updateItem(Item item, UpdateCallback callback) {
         if (item.getId() == null || item.getId().isEmpty()) {
             callback.onError(new Exception("Item ID is required"));
             return;
         }
+        if (!item.isDirty()) {
+            callback.onSuccess();
+            return;
+        }
 
-        Map<String, Object> itemData = itemToMap(item);
+        Map<String, Object> itemData = ItemMapper.toMap(item);
+        itemData.keySet().retainAll(item.dirtyFields());
 
         db.collection(COLLECTION_NAME)
                 .document(item.getId())
                 .update(itemData)
-                .addOnSuccessListener(aVoid -> callback.onSuccess())
+                .addOnSuccessListener(aVoid -> {
+                    item.clearDirty();
+                    searchIndex.put(item);
+                    putInStore(item);
+                    callback.onSuccess();
+                })
                 .addOnFailureListener(callback::onError);
     }
 
@@ -169,46 +398,54 @@ public class ItemRepository {
         db.collection(COLLECTION_NAME)
                 .document(itemId)
                 .delete()
-                .addOnSuccessListener(aVoid -> callback.onSuccess())
+                .addOnSuccessListener(aVoid -> {
+                    searchIndex.remove(itemId);
+                    LocalStore store = LocalStore.getInstance();
+                    if (store != null) {
+                        store.deleteItem(itemId);
+                    }
+                    callback.onSuccess();
+                })
                 .addOnFailureListener(callback::onError);
     }
 
+    private static void putInStore(Item item) {
+        LocalStore store = LocalStore.getInstance();
+        if (store != null) {
+            store.putItem(item);
+        }
+    }
+
+    // A failed refresh after a cached answer is only logged, so the screen keeps working offline
+    private static void onFetchFailed(Exception e, List<Item> cached, ItemsCallback callback) {
+        if (cached != null && !cached.isEmpty()) {
+            Log.w(TAG, "Refresh failed, keeping " + cached.size() + " stored items", e);
+        } else {
+            callback.onError(e);
+        }
+    }
+
+    private static String newestCreatedDate(List<Item> items, String fallback) {
+        String newest = fallback;
+        for (Item item : items) {
+            String date = item.getCreatedDate();
+            if (date != null && (newest == null || date.compareTo(newest) > 0)) {
+                newest = date;
+            }
+        }
+        return newest;
+    }
+
     // Helper: Sort items by date descending
     private static void sortItemsByDateDesc(List<Item> items) {
-        Collections.sort(items, (item1, item2) -> {
-            String date1 = item1.getCreatedDate();
-            String date2 = item2.getCreatedDate();
-            if (date1 == null) date1 = "";
-            if (date2 == null) date2 = "";
-            return date2.compareTo(date1); // Descending
-        });
+        Collections.sort(items, (item1, item2) -> Long.compare(item2.getCreatedAt(), item1.getCreatedAt()));
     }
 
     // Helper: Document to Item
     private static Item documentToItem(DocumentSnapshot document) {
-        Item item = new Item();
-        item.setId(document.getId());
-        item.setName(document.getString("name"));
-        item.setLocation(document.getString("location"));
-        item.setDescription(document.getString("description"));
-        item.setStatus(document.getString("status"));
-        item.setCreatedBy(document.getString("createdBy"));
-        item.setCreatedDate(document.getString("createdDate"));
-        item.setImageUrl(document.getString("imageUrl"));
+        Item item = ItemMapper.fromDocument(document);
+        // Freshly loaded, so nothing is unsaved
+        item.clearDirty();
         return item;
     }
-
-    // Helper: Item to Map
-    private static Map<String, Object> itemToMap(Item item) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", item.getId());
-        map.put("name", item.getName());
-        map.put("location", item.getLocation());
-        map.put("description", item.getDescription());
-        map.put("status", item.getStatus());
-        map.put("createdBy", item.getCreatedBy());
-        map.put("createdDate", item.getCreatedDate());
-        map.put("imageUrl", item.getImageUrl());
-        return map;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.example.back2me;
+
+import java.util.Objects;
+
+/**
+ * Display model for an item in the home and search lists. Everything the
+ * row shows is resolved once in {@link #from}, so binding only copies
+ * fields into views.
+ */
+public final class ItemRow {
+
+    private final Item item;
+    private final String name;
+    private final String location;
+    // 0 for a status without a badge
+    private final int statusLabel;
+    private final int statusBadge;
+    private final String date;
+    private final String time;
+    // Null when the item has no image
+    private final String imageUrl;
+
+    private ItemRow(Item item, String name, String location, int statusLabel, int statusBadge,
+                    String date, String time, String imageUrl) {
+        this.item = item;
+        this.name = name;
+        this.location = location;
+        this.statusLabel = statusLabel;
+        this.statusBadge = statusBadge;
+        this.date = date;
+        this.time = time;
+        this.imageUrl = imageUrl;
+    }
+
+    public static ItemRow from(Item item) {
+        int statusLabel = 0;
+        int statusBadge = 0;
+        String status = item.getStatus();
+        if ("lost".equalsIgnoreCase(status)) {
+            statusLabel = R.string.status_lost;
+            statusBadge = R.drawable.badge_lost;
+        } else if ("found".equalsIgnoreCase(status)) {
+            statusLabel = R.string.status_found;
+            statusBadge = R.drawable.badge_found;
+        } else if ("resolved".equalsIgnoreCase(status)) {
+            statusLabel = R.string.status_resolved;
+            statusBadge = R.drawable.badge_resolved;
+        }
+
+        String imageUrl = item.getImageUrl();
+        return new ItemRow(item, item.getName(), item.getLocation(), statusLabel, statusBadge,
+                Timestamps.formatDate(item.getCreatedAt()), Timestamps.formatTime(item.getCreatedAt()),
+                imageUrl != null && !imageUrl.isEmpty() ? imageUrl : null);
+    }
+
+    // The item behind the row, for click handling
+    public Item getItem() {
+        return item;
+    }
+
+    public String getId() {
+        return item.getId();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public int getStatusLabel() {
+        return statusLabel;
+    }
+
+    public int getStatusBadge() {
+        return statusBadge;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public boolean sameContents(ItemRow other) {
+        return statusLabel == other.statusLabel && sameExceptStatus(other);
+    }
+
+    // True when the status badge is the only visible difference
+    public boolean onlyStatusDiffers(ItemRow other) {
+        return statusLabel != other.statusLabel && sameExceptStatus(other);
+    }
+
+    private boolean sameExceptStatus(ItemRow other) {
+        return Objects.equals(name, other.name)
+                && Objects.equals(location, other.location)
+                && Objects.equals(date, other.date)
+                && Objects.equals(time, other.time)
+                && Objects.equals(imageUrl, other.imageUrl);
+    }
+}
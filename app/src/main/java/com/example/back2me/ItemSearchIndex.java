@@ -0,0 +1,363 @@
+package com.example.back2me;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over item name, location and description.
+ *
+ * Terms are lower-cased once when an item is indexed, so a query never
+ * touches the item strings. Every query word must match the start of some
+ * term in an item. The most selective word drives the lookup through the
+ * posting lists; the remaining words are checked against each candidate's
+ * own term list. Results are ranked by field weight, with a bonus for
+ * whole-word matches, then newest first.
+ */
+public class ItemSearchIndex {
+
+    private static final int WEIGHT_NAME = 4;
+    private static final int WEIGHT_LOCATION = 2;
+    private static final int WEIGHT_DESCRIPTION = 1;
+    private static final int EXACT_TERM_BONUS = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final ItemSearchIndex instance = new ItemSearchIndex();
+
+    // Posting list: parallel arrays of document slots and field weights
+    private static class Postings {
+        int[] docs = new int[4];
+        int[] weights = new int[4];
+        int size = 0;
+
+        void add(int doc, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    // Sorted so prefix lookups are a range scan
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, Integer> slotsById = new HashMap<>();
+
+    // Document slots; removed items leave a null until the next compaction
+    private Item[] docs = new Item[INITIAL_CAPACITY];
+    private String[][] docTerms = new String[INITIAL_CAPACITY][];
+    private int[][] docWeights = new int[INITIAL_CAPACITY][];
+    private long[] docDateKeys = new long[INITIAL_CAPACITY];
+    private int docCount = 0;
+    private int liveCount = 0;
+
+    // Per-query scratch space, reused between queries
+    private int[] scores = new int[INITIAL_CAPACITY];
+    private int[] queryStamps = new int[INITIAL_CAPACITY];
+    private int[] candidates = new int[INITIAL_CAPACITY];
+    private int currentStamp = 0;
+
+    public static ItemSearchIndex getInstance() {
+        return instance;
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    public synchronized void clear() {
+        terms.clear();
+        slotsById.clear();
+        Arrays.fill(docs, 0, docCount, null);
+        Arrays.fill(docTerms, 0, docCount, null);
+        Arrays.fill(docWeights, 0, docCount, null);
+        docCount = 0;
+        liveCount = 0;
+    }
+
+    // Make the index hold exactly these items, without a query ever seeing it half-filled
+    public synchronized void replaceAll(Collection<Item> items) {
+        clear();
+        addAll(items);
+    }
+
+    // Add or replace items
+    public synchronized void addAll(Collection<Item> items) {
+        for (Item item : items) {
+            put(item);
+        }
+    }
+
+    // Add an item, replacing any earlier version with the same ID
+    public synchronized void put(Item item) {
+        if (item == null || item.getId() == null || item.getId().isEmpty()) return;
+
+        removeSlot(item.getId());
+        compactIfSparse();
+        ensureCapacity(docCount + 1);
+
+        Map<String, Integer> itemTerms = new HashMap<>();
+        collectTerms(item.getName(), WEIGHT_NAME, itemTerms);
+        collectTerms(item.getLocation(), WEIGHT_LOCATION, itemTerms);
+        collectTerms(item.getDescription(), WEIGHT_DESCRIPTION, itemTerms);
+
+        int slot = docCount++;
+        String[] slotTerms = new String[itemTerms.size()];
+        int[] slotWeights = new int[itemTerms.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : itemTerms.entrySet()) {
+            slotTerms[i] = entry.getKey();
+            slotWeights[i] = entry.getValue();
+            i++;
+
+            Postings postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(entry.getKey(), postings);
+            }
+            postings.add(slot, entry.getValue());
+        }
+
+        docs[slot] = item;
+        docTerms[slot] = slotTerms;
+        docWeights[slot] = slotWeights;
+        docDateKeys[slot] = item.getCreatedAt();
+        slotsById.put(item.getId(), slot);
+        liveCount++;
+    }
+
+    // Change the status of an indexed item; its text, and so its terms, stay the same
+    public synchronized void updateStatus(String itemId, String status) {
+        Integer slot = itemId != null ? slotsById.get(itemId) : null;
+        if (slot == null || docs[slot] == null) return;
+        Item updated = docs[slot].copyWithStatus(status);
+        // The status is already stored; the index only holds saved items
+        updated.clearDirty();
+        docs[slot] = updated;
+    }
+
+    public synchronized void remove(String itemId) {
+        if (itemId == null) return;
+        removeSlot(itemId);
+        compactIfSparse();
+    }
+
+    /**
+     * Search indexed items.
+     *
+     * @param query  free text; each word is matched as a prefix
+     * @param status "lost", "found", or null for every status
+     * @return matching items, best match first; empty for a blank query
+     */
+    public synchronized List<Item> search(String query, String status) {
+        List<String> tokens = new ArrayList<>();
+        collectTokens(query, tokens);
+        if (tokens.isEmpty() || liveCount == 0) return new ArrayList<>();
+
+        // Drive the lookup with the word whose prefix range has the fewest postings
+        int driver = -1;
+        long driverCost = Long.MAX_VALUE;
+        List<NavigableMap<String, Postings>> ranges = new ArrayList<>(tokens.size());
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            NavigableMap<String, Postings> range =
+                    terms.subMap(token, true, token + Character.MAX_VALUE, false);
+            ranges.add(range);
+
+            long cost = 0;
+            for (Postings postings : range.values()) {
+                cost += postings.size;
+                if (cost >= driverCost) break;
+            }
+            if (cost == 0) return new ArrayList<>();
+            if (cost < driverCost) {
+                driverCost = cost;
+                driver = t;
+            }
+        }
+
+        int stamp = ++currentStamp;
+        int candidateCount = 0;
+        String driverToken = tokens.get(driver);
+
+        for (Map.Entry<String, Postings> entry : ranges.get(driver).entrySet()) {
+            int bonus = entry.getKey().length() == driverToken.length() ? EXACT_TERM_BONUS : 0;
+            Postings postings = entry.getValue();
+
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.docs[i];
+                Item item = docs[doc];
+                if (item == null) continue;
+
+                if (queryStamps[doc] != stamp) {
+                    if (status != null && !status.equalsIgnoreCase(item.getStatus())) continue;
+                    queryStamps[doc] = stamp;
+                    scores[doc] = 0;
+                    candidates[candidateCount++] = doc;
+                }
+                scores[doc] += postings.weights[i] + bonus;
+            }
+        }
+
+        // Check the other words against each candidate's own terms
+        int hitCount = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            int doc = candidates[c];
+            boolean matchesAll = true;
+            for (int t = 0; t < tokens.size() && matchesAll; t++) {
+                if (t == driver) continue;
+                int tokenScore = scoreToken(doc, tokens.get(t));
+                if (tokenScore == 0) {
+                    matchesAll = false;
+                } else {
+                    scores[doc] += tokenScore;
+                }
+            }
+            if (matchesAll) {
+                candidates[hitCount++] = doc;
+            }
+        }
+
+        sortHits(candidates, 0, hitCount - 1);
+
+        List<Item> results = new ArrayList<>(hitCount);
+        for (int i = 0; i < hitCount; i++) {
+            results.add(docs[candidates[i]]);
+        }
+        return results;
+    }
+
+    // Sum of weights of the document terms that start with the token, 0 if none do
+    private int scoreToken(int doc, String token) {
+        String[] slotTerms = docTerms[doc];
+        int[] slotWeights = docWeights[doc];
+        int score = 0;
+        for (int i = 0; i < slotTerms.length; i++) {
+            String term = slotTerms[i];
+            if (term.startsWith(token)) {
+                score += slotWeights[i] + (term.length() == token.length() ? EXACT_TERM_BONUS : 0);
+            }
+        }
+        return score;
+    }
+
+    // Higher score first, then newer first
+    private boolean ranksBefore(int a, int b) {
+        if (scores[a] != scores[b]) return scores[a] > scores[b];
+        return docDateKeys[a] > docDateKeys[b];
+    }
+
+    // In-place quicksort over slot numbers, avoiding boxed comparators
+    private void sortHits(int[] hits, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                for (int i = low + 1; i <= high; i++) {
+                    int value = hits[i];
+                    int j = i - 1;
+                    while (j >= low && ranksBefore(value, hits[j])) {
+                        hits[j + 1] = hits[j];
+                        j--;
+                    }
+                    hits[j + 1] = value;
+                }
+                return;
+            }
+
+            int pivot = hits[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (ranksBefore(hits[i], pivot)) i++;
+                while (ranksBefore(pivot, hits[j])) j--;
+                if (i <= j) {
+                    int tmp = hits[i];
+                    hits[i] = hits[j];
+                    hits[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+
+            // Recurse into the smaller half to bound stack depth
+            if (j - low < high - i) {
+                sortHits(hits, low, j);
+                low = i;
+            } else {
+                sortHits(hits, i, high);
+                high = j;
+            }
+        }
+    }
+
+    private void removeSlot(String itemId) {
+        Integer slot = slotsById.remove(itemId);
+        if (slot != null && docs[slot] != null) {
+            docs[slot] = null;
+            docTerms[slot] = null;
+            docWeights[slot] = null;
+            liveCount--;
+        }
+    }
+
+    // Rebuild without the removed slots once they outnumber the live ones
+    private void compactIfSparse() {
+        if (docCount <= INITIAL_CAPACITY || liveCount >= docCount / 2) return;
+
+        List<Item> live = new ArrayList<>(liveCount);
+        for (int i = 0; i < docCount; i++) {
+            if (docs[i] != null) live.add(docs[i]);
+        }
+        clear();
+        addAll(live);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= docs.length) return;
+        int newLength = Math.max(capacity, docs.length * 2);
+        docs = Arrays.copyOf(docs, newLength);
+        docTerms = Arrays.copyOf(docTerms, newLength);
+        docWeights = Arrays.copyOf(docWeights, newLength);
+        docDateKeys = Arrays.copyOf(docDateKeys, newLength);
+        scores = Arrays.copyOf(scores, newLength);
+        queryStamps = Arrays.copyOf(queryStamps, newLength);
+        candidates = Arrays.copyOf(candidates, newLength);
+    }
+
+    // Keep the strongest field weight for each distinct term
+    private static void collectTerms(String text, int weight, Map<String, Integer> out) {
+        List<String> tokens = new ArrayList<>();
+        collectTokens(text, tokens);
+        for (String token : tokens) {
+            Integer existing = out.get(token);
+            if (existing == null || existing < weight) {
+                out.put(token, weight);
+            }
+        }
+    }
+
+    // Split on anything that is not a letter or digit, lower-casing as we go
+    private static void collectTokens(String text, List<String> out) {
+        if (text == null) return;
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                out.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            out.add(current.toString());
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.back2me;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device SQLite mirror of the items and claims the app has loaded.
+ *
+ * Repositories answer reads from here first and write every server result
+ * and every successful write back, so screens render from the last known
+ * state on a cold start or with no connection. Rows are looked up through
+ * the same fields the Firestore queries filter on, each with its own index.
+ * Also keeps a per-feed high-water mark of the newest createdDate seen, so
+ * a sync only has to ask for documents newer than that.
+ *
+ * All database work runs on one background thread; results are delivered
+ * on the main thread.
+ */
+public class LocalStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "LocalStore";
+
+    private static final String DATABASE_NAME = "back2me.db";
+    private static final int DATABASE_VERSION = 3;
+
+    private static final String TABLE_ITEMS = "items";
+    private static final String TABLE_CLAIMS = "claims";
+    private static final String TABLE_SYNC_MARKS = "sync_marks";
+
+    // Item columns that may be used to select rows
+    public static final String ITEM_CREATED_BY = "created_by";
+
+    // Claim columns that may be used to select rows
+    public static final String CLAIM_ITEM_ID = "item_id";
+    public static final String CLAIM_CLAIMER_ID = "claimer_id";
+    public static final String CLAIM_OWNER_ID = "owner_id";
+
+    private static LocalStore instance;
+
+    public interface ItemsCallback {
+        void onLoaded(List<Item> items);
+    }
+
+    public interface ClaimsCallback {
+        void onLoaded(List<Claim> claims);
+    }
+
+    public interface SyncMarkCallback {
+        // Null createdDate and 0 syncedAt when the feed was never synced
+        void onLoaded(String createdDate, long syncedAt);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private LocalStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    // Open the mirror; call once from Application.onCreate
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new LocalStore(context);
+        }
+    }
+
+    // Null before init, in which case repositories go straight to the network
+    public static synchronized LocalStore getInstance() {
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ITEMS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "name TEXT, "
+                + "location TEXT, "
+                + "description TEXT, "
+                + "status TEXT, "
+                + "created_by TEXT, "
+                + "created_date TEXT, "
+                + "image_url TEXT, "
+                + "created_at INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX items_created_by ON " + TABLE_ITEMS + " (created_by)");
+        db.execSQL("CREATE INDEX items_created_at ON " + TABLE_ITEMS + " (created_at)");
+
+        db.execSQL("CREATE TABLE " + TABLE_CLAIMS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "item_id TEXT, "
+                + "item_name TEXT, "
+                + "item_status TEXT, "
+                + "claimer_id TEXT, "
+                + "claimer_name TEXT, "
+                + "claimer_email TEXT, "
+                + "owner_id TEXT, "
+                + "message TEXT, "
+                + "status TEXT, "
+                + "created_date TEXT, "
+                + "created_at INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX claims_item_id ON " + TABLE_CLAIMS + " (item_id)");
+        db.execSQL("CREATE INDEX claims_claimer_id ON " + TABLE_CLAIMS + " (claimer_id)");
+        db.execSQL("CREATE INDEX claims_owner_id ON " + TABLE_CLAIMS + " (owner_id)");
+
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_MARKS + " ("
+                + "feed TEXT PRIMARY KEY, "
+                + "created_date TEXT, "
+                + "synced_at INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Everything here can be downloaded again
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ITEMS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CLAIMS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_MARKS);
+        onCreate(db);
+    }
+
+    // Items
+
+    /**
+     * Items whose {@code column} equals {@code value}, newest first; every
+     * item when {@code column} is null. At most {@code limit} rows, or all
+     * of them when {@code limit} is 0.
+     */
+    public void queryItems(String column, String value, int limit, ItemsCallback callback) {
+        executor.execute(() -> {
+            List<Item> items = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query(TABLE_ITEMS, null,
+                    column != null ? column + " = ?" : null,
+                    column != null ? new String[]{value} : null,
+                    null, null, "created_at DESC", limit > 0 ? String.valueOf(limit) : null)) {
+                while (cursor.moveToNext()) {
+                    items.add(readItem(cursor));
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading items", e);
+            }
+            mainHandler.post(() -> callback.onLoaded(items));
+        });
+    }
+
+    public void getItem(String itemId, ItemsCallback callback) {
+        executor.execute(() -> {
+            List<Item> items = new ArrayList<>(1);
+            try (Cursor cursor = getReadableDatabase().query(TABLE_ITEMS, null,
+                    "id = ?", new String[]{itemId}, null, null, null)) {
+                if (cursor.moveToNext()) {
+                    items.add(readItem(cursor));
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading item " + itemId, e);
+            }
+            mainHandler.post(() -> callback.onLoaded(items));
+        });
+    }
+
+    // Insert or overwrite
+    public void putItems(Collection<Item> items) {
+        if (items.isEmpty()) return;
+        List<ContentValues> rows = itemRows(items);
+        write(db -> {
+            for (ContentValues row : rows) {
+                db.insertWithOnConflict(TABLE_ITEMS, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    public void putItem(Item item) {
+        List<Item> items = new ArrayList<>(1);
+        items.add(item);
+        putItems(items);
+    }
+
+    /**
+     * Make the rows whose {@code column} equals {@code value} exactly
+     * {@code items}, so documents deleted on the server disappear here too.
+     * A null column replaces the whole table.
+     */
+    public void replaceItems(String column, String value, Collection<Item> items) {
+        List<ContentValues> rows = itemRows(items);
+        write(db -> {
+            db.delete(TABLE_ITEMS, column != null ? column + " = ?" : null,
+                    column != null ? new String[]{value} : null);
+            for (ContentValues row : rows) {
+                db.insertWithOnConflict(TABLE_ITEMS, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    public void updateItemStatus(String itemId, String status) {
+        ContentValues row = new ContentValues();
+        row.put("status", status);
+        write(db -> db.update(TABLE_ITEMS, row, "id = ?", new String[]{itemId}));
+    }
+
+    public void deleteItem(String itemId) {
+        write(db -> {
+            db.delete(TABLE_ITEMS, "id = ?", new String[]{itemId});
+            db.delete(TABLE_CLAIMS, "item_id = ?", new String[]{itemId});
+        });
+    }
+
+    // Claims
+
+    // Claims whose {@code column} equals {@code value}, newest first
+    public void queryClaims(String column, String value, ClaimsCallback callback) {
+        executor.execute(() -> {
+            List<Claim> claims = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query(TABLE_CLAIMS, null,
+                    column + " = ?", new String[]{value}, null, null, "created_at DESC")) {
+                while (cursor.moveToNext()) {
+                    claims.add(readClaim(cursor));
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading claims", e);
+            }
+            mainHandler.post(() -> callback.onLoaded(claims));
+        });
+    }
+
+    public void putClaim(Claim claim) {
+        ContentValues row = claimRow(claim);
+        write(db -> db.insertWithOnConflict(TABLE_CLAIMS, null, row, SQLiteDatabase.CONFLICT_REPLACE));
+    }
+
+    // Same as replaceItems, for the claims selected by column
+    public void replaceClaims(String column, String value, Collection<Claim> claims) {
+        List<ContentValues> rows = new ArrayList<>(claims.size());
+        for (Claim claim : claims) {
+            rows.add(claimRow(claim));
+        }
+        write(db -> {
+            db.delete(TABLE_CLAIMS, column + " = ?", new String[]{value});
+            for (ContentValues row : rows) {
+                db.insertWithOnConflict(TABLE_CLAIMS, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    public void updateClaimStatus(String claimId, String status) {
+        ContentValues row = new ContentValues();
+        row.put("status", status);
+        write(db -> db.update(TABLE_CLAIMS, row, "id = ?", new String[]{claimId}));
+    }
+
+    public void deleteClaim(String claimId) {
+        write(db -> db.delete(TABLE_CLAIMS, "id = ?", new String[]{claimId}));
+    }
+
+    // Sync marks
+
+    public void getSyncMark(String feed, SyncMarkCallback callback) {
+        executor.execute(() -> {
+            String createdDate = null;
+            long syncedAt = 0;
+            try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC_MARKS,
+                    new String[]{"created_date", "synced_at"}, "feed = ?", new String[]{feed},
+                    null, null, null)) {
+                if (cursor.moveToNext()) {
+                    createdDate = cursor.getString(0);
+                    syncedAt = cursor.getLong(1);
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading sync mark " + feed, e);
+            }
+            String mark = createdDate;
+            long at = syncedAt;
+            mainHandler.post(() -> callback.onLoaded(mark, at));
+        });
+    }
+
+    // Record the newest createdDate seen by a feed and when it was last fully synced
+    public void putSyncMark(String feed, String createdDate, long syncedAt) {
+        ContentValues row = new ContentValues();
+        row.put("feed", feed);
+        row.put("created_date", createdDate);
+        row.put("synced_at", syncedAt);
+        write(db -> db.insertWithOnConflict(TABLE_SYNC_MARKS, null, row, SQLiteDatabase.CONFLICT_REPLACE));
+    }
+
+    // Forget everything, e.g. on sign-out
+    public void clear() {
+        write(db -> {
+            db.delete(TABLE_ITEMS, null, null);
+            db.delete(TABLE_CLAIMS, null, null);
+            db.delete(TABLE_SYNC_MARKS, null, null);
+        });
+    }
+
+    private interface Write {
+        void run(SQLiteDatabase db);
+    }
+
+    // Run on the database thread inside one transaction
+    private void write(Write write) {
+        executor.execute(() -> {
+            SQLiteDatabase db;
+            try {
+                db = getWritableDatabase();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not open database", e);
+                return;
+            }
+            db.beginTransaction();
+            try {
+                write.run(db);
+                db.setTransactionSuccessful();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error writing", e);
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    private static List<ContentValues> itemRows(Collection<Item> items) {
+        List<ContentValues> rows = new ArrayList<>(items.size());
+        for (Item item : items) {
+            if (item.getId() == null || item.getId().isEmpty()) continue;
+            ContentValues row = new ContentValues();
+            row.put("id", item.getId());
+            row.put("name", item.getName());
+            row.put("location", item.getLocation());
+            row.put("description", item.getDescription());
+            row.put("status", item.getStatus());
+            row.put("created_by", item.getCreatedBy());
+            row.put("created_date", item.getCreatedDate());
+            row.put("image_url", item.getImageUrl());
+            row.put("created_at", item.getCreatedAt());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Item readItem(Cursor cursor) {
+        Item item = new Item(
+                string(cursor, "id"),
+                string(cursor, "name"),
+                string(cursor, "location"),
+                string(cursor, "description"),
+                string(cursor, "status"),
+                string(cursor, "created_by"),
+                string(cursor, "created_date"),
+                string(cursor, "image_url"));
+        item.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow("created_at")));
+        // Mirrors saved state, so nothing is unsaved
+        item.clearDirty();
+        return item;
+    }
+
+    private static ContentValues claimRow(Claim claim) {
+        ContentValues row = new ContentValues();
+        row.put("id", claim.getId());
+        row.put("item_id", claim.getItemId());
+        row.put("item_name", claim.getItemName());
+        row.put("item_status", claim.getItemStatus());
+        row.put("claimer_id", claim.getClaimerId());
+        row.put("claimer_name", claim.getClaimerName());
+        row.put("claimer_email", claim.getClaimerEmail());
+        row.put("owner_id", claim.getOwnerId());
+        row.put("message", claim.getMessage());
+        row.put("status", claim.getStatus());
+        row.put("created_date", claim.getCreatedDate());
+        row.put("created_at", claim.getCreatedAt());
+        return row;
+    }
+
+    private static Claim readClaim(Cursor cursor) {
+        Claim claim = new Claim();
+        claim.setId(string(cursor, "id"));
+        claim.setItemId(string(cursor, "item_id"));
+        claim.setItemName(string(cursor, "item_name"));
+        claim.setItemStatus(string(cursor, "item_status"));
+        claim.setClaimerId(string(cursor, "claimer_id"));
+        claim.setClaimerName(string(cursor, "claimer_name"));
+        claim.setClaimerEmail(string(cursor, "claimer_email"));
+        claim.setOwnerId(string(cursor, "owner_id"));
+        claim.setMessage(string(cursor, "message"));
+        claim.setStatus(string(cursor, "status"));
+        claim.setCreatedDate(string(cursor, "created_date"));
+        claim.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow("created_at")));
+        return claim;
+    }
+
+    private static String string(Cursor cursor, String column) {
+        return cursor.getString(cursor.getColumnIndexOrThrow(column));
+    }
+}
@@ -9,18 +9,14 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.back2me.databinding.ActivityMainBinding;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -33,10 +29,15 @@ public class MainActivity extends AppCompatActivity {
     private final List<Item> recentItems = new ArrayList<>();
     private final List<Item> oldItems = new ArrayList<>();
 
+    private ItemFeed itemFeed;
+
+    // Start fetching the next page when the list is within this many pixels of the bottom
+    private static final int PREFETCH_DISTANCE_PX = 1500;
+
     private final ActivityResultLauncher<Intent> addItemLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
                 if (result.getResultCode() == RESULT_OK) {
-                    loadItems();
+                    // The feed's listener picks up the new item
                     Toast.makeText(this, "Item posted! List refreshed.", Toast.LENGTH_SHORT).show();
                 }
             });
@@ -49,7 +50,20 @@ public class MainActivity extends AppCompatActivity {
 
         setupRecyclerViews();
         setupClickListeners();
-        loadItems();
+        setupItemFeed();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Re-attaching downloads what changed in the live page and re-reads any older pages
+        itemFeed.start();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        itemFeed.stop();
     }
 
     @Override
@@ -57,20 +71,31 @@ public class MainActivity extends AppCompatActivity {
         super.onResume();
         // Always select home when returning to this activity
         binding.bottomNavigation.setSelectedItemId(R.id.nav_home);
-        // Reload items in case something changed
-        loadItems();
     }
 
     private void setupRecyclerViews() {
-        recentAdapter = new ItemGridAdapter(recentItems, this::openItemDetail);
-        binding.recyclerRecent.setLayoutManager(
-                new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false)
-        );
+        recentAdapter = new ItemGridAdapter(this::openItemDetail);
+        LinearLayoutManager recentLayoutManager =
+                new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false);
+        binding.recyclerRecent.setLayoutManager(recentLayoutManager);
         binding.recyclerRecent.setAdapter(recentAdapter);
+        binding.recyclerRecent.addOnScrollListener(
+                new InfiniteScrollListener(recentLayoutManager, this::loadNextPage));
 
-        oldAdapter = new ItemListAdapter(oldItems, this::openItemDetail);
+        oldAdapter = new ItemListAdapter(this::openItemDetail);
         binding.recyclerOld.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerOld.setAdapter(oldAdapter);
+
+        // The old-items list sits inside the NestedScrollView, so page on its scroll position
+        binding.scrollHome.setOnScrollChangeListener(
+                (NestedScrollView.OnScrollChangeListener)
+                        (v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+                    if (scrollY <= oldScrollY) return;
+                    int remaining = v.getChildAt(0).getMeasuredHeight() - (scrollY + v.getHeight());
+                    if (remaining <= PREFETCH_DISTANCE_PX) {
+                        loadNextPage();
+                    }
+                });
     }
 
     private void setupClickListeners() {
@@ -114,12 +139,13 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void loadItems() {
-        ItemRepository.getAllItems(new ItemRepository.ItemsCallback() {
+    private void setupItemFeed() {
+        itemFeed = new ItemFeed(ItemRepository.DEFAULT_PAGE_SIZE, new ItemFeed.Listener() {
             @Override
-            public void onSuccess(List<Item> items) {
-                Log.d(TAG, "Loaded " + items.size() + " items from Firestore");
+            public void onItemsChanged(List<Item> items) {
+                Log.d(TAG, "Feed now holds " + items.size() + " items");
                 categorizeItems(items);
+                fillViewportIfNeeded();
             }
 
             @Override
@@ -132,35 +158,42 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void categorizeItems(List<Item> items) {
-        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    private void loadNextPage() {
+        itemFeed.loadMore();
+    }
+
+    // Keep paging until the screen is filled, since a short list never scrolls
+    private void fillViewportIfNeeded() {
+        binding.scrollHome.post(() -> {
+            if (itemFeed.hasMore() && !binding.scrollHome.canScrollVertically(1)) {
+                loadNextPage();
+            }
+        });
+    }
 
+    // Split the feed (newest first) into the recent and old buckets. This is
+    // in memory only; the adapters diff the result, so only rows for items
+    // that were added, changed or removed are touched.
+    private void categorizeItems(List<Item> items) {
         Calendar calendar = Calendar.getInstance();
         calendar.add(Calendar.DAY_OF_YEAR, -7);
-        Date sevenDaysAgo = calendar.getTime();
+        long sevenDaysAgo = calendar.getTimeInMillis();
 
         recentItems.clear();
         oldItems.clear();
-
         for (Item item : items) {
-            try {
-                Date itemDate = isoFormat.parse(item.getCreatedDate());
-                if (itemDate != null && itemDate.after(sevenDaysAgo)) {
-                    recentItems.add(item);
-                } else {
-                    oldItems.add(item);
-                }
-            } catch (ParseException e) {
-                Log.e(TAG, "Date parsing error for item: " + item.getId(), e);
+            // Items without a readable date have createdAt 0 and count as old
+            if (item.getCreatedAt() > sevenDaysAgo) {
+                recentItems.add(item);
+            } else {
                 oldItems.add(item);
             }
         }
 
-        Log.d(TAG, "Recent: " + recentItems.size() + ", Old: " + oldItems.size());
+        recentAdapter.submitSource(recentItems);
+        oldAdapter.submitSource(oldItems);
 
-        recentAdapter.notifyDataSetChanged();
-        oldAdapter.notifyDataSetChanged();
+        Log.d(TAG, "Recent: " + recentItems.size() + ", Old: " + oldItems.size());
 
         updateViewVisibility();
     }
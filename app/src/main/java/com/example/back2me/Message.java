@@ -1,12 +1,33 @@
 package com.example.back2me;
 
+import com.example.back2me.mapper.DocumentId;
+import com.example.back2me.mapper.EpochMillis;
+import com.example.back2me.mapper.FirestoreDocument;
+import com.example.back2me.mapper.Ignore;
+
+@FirestoreDocument
 public class Message {
+
+    // Delivery state of a message sent from this device; not stored in Firestore
+    public enum SendState {
+        SENDING,
+        SENT,
+        FAILED
+    }
+
+    @DocumentId
     private String id;
     private String senderId;
     private String senderName;
     private String text;
     private String timestamp;
+    // timestamp as epoch millis
+    @EpochMillis
+    private long sentAt;
+    @Ignore
     private boolean read;
+    @Ignore
+    private SendState sendState = SendState.SENT;
 
     // Empty constructor for Firestore
     public Message() {
@@ -26,6 +47,7 @@ public class Message {
         this.senderName = senderName;
         this.text = text;
         this.timestamp = timestamp;
+        this.sentAt = Timestamps.parseIso(timestamp);
         this.read = read;
     }
 
@@ -36,6 +58,7 @@ public class Message {
         this.senderName = senderName;
         this.text = text;
         this.timestamp = timestamp;
+        this.sentAt = Timestamps.parseIso(timestamp);
         this.read = false;
     }
 
@@ -45,13 +68,20 @@ public class Message {
     public String getSenderName() { return senderName; }
     public String getText() { return text; }
     public String getTimestamp() { return timestamp; }
+    public long getSentAt() { return sentAt; }
     public boolean isRead() { return read; }
+    public SendState getSendState() { return sendState; }
 
     // Setters
     public void setId(String id) { this.id = id; }
     public void setSenderId(String senderId) { this.senderId = senderId; }
     public void setSenderName(String senderName) { this.senderName = senderName; }
     public void setText(String text) { this.text = text; }
-    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+        this.sentAt = Timestamps.parseIso(timestamp);
+    }
+    public void setSentAt(long sentAt) { this.sentAt = sentAt; }
     public void setRead(boolean read) { this.read = read; }
+    public void setSendState(SendState sendState) { this.sendState = sendState; }
 }
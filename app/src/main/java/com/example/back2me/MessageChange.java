@@ -0,0 +1,45 @@
+package com.example.back2me;
+
+/**
+ * One change to a listened message list. Indexes follow Firestore's
+ * document change semantics: each one is relative to the list after the
+ * previous changes in the same batch have been applied.
+ */
+public class MessageChange {
+
+    public enum Type {
+        ADDED,
+        MODIFIED,
+        REMOVED
+    }
+
+    private final Type type;
+    private final Message message;
+    private final int oldIndex;
+    private final int newIndex;
+
+    public MessageChange(Type type, Message message, int oldIndex, int newIndex) {
+        this.type = type;
+        this.message = message;
+        this.oldIndex = oldIndex;
+        this.newIndex = newIndex;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    // Position before the change, -1 for ADDED
+    public int getOldIndex() {
+        return oldIndex;
+    }
+
+    // Position after the change, -1 for REMOVED
+    public int getNewIndex() {
+        return newIndex;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.back2me;
+
+/**
+ * Display model for a chat message. Whether it was sent by the current user
+ * and its formatted time are resolved once, when the message enters the
+ * adapter. The delivery state stays on the message, which the outbound
+ * queue updates in place.
+ */
+public final class MessageRow {
+
+    private final Message message;
+    private final boolean outgoing;
+    private final String time;
+
+    private MessageRow(Message message, boolean outgoing, String time) {
+        this.message = message;
+        this.outgoing = outgoing;
+        this.time = time;
+    }
+
+    public static MessageRow from(Message message, String currentUserId) {
+        return new MessageRow(message, currentUserId.equals(message.getSenderId()),
+                Timestamps.formatTime(message.getSentAt()));
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public String getId() {
+        return message.getId();
+    }
+
+    public String getSenderId() {
+        return message.getSenderId();
+    }
+
+    public String getSenderName() {
+        return message.getSenderName();
+    }
+
+    public String getText() {
+        return message.getText();
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public boolean isOutgoing() {
+        return outgoing;
+    }
+
+    public Message.SendState getSendState() {
+        return message.getSendState();
+    }
+}
@@ -8,37 +8,197 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
+/**
+ * Chat messages, oldest first. The list is driven by the listener's
+ * document changes, so each incoming message costs one range notification
+ * rather than a rebind of the whole conversation.
+ *
+ * Messages sent from this device are shown below the listened ones until
+ * the listener delivers them, then take over the listened row's position
+ * while keeping their delivery state.
+ */
 public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
+    public interface OnRetryListener {
+        void onRetry(Message message);
+    }
+
     private static final int VIEW_TYPE_SENT = 1;
     private static final int VIEW_TYPE_RECEIVED = 2;
 
-    private final List<Message> messages;
-    private final String currentUserId;
+    // Payload for a row whose sender header may have appeared or gone
+    private static final Object PAYLOAD_SENDER_NAME = "sender_name";
+    // Payload for a sent row whose delivery state changed
+    private static final Object PAYLOAD_SEND_STATE = "send_state";
 
-    private final SimpleDateFormat isoFormat;
-    private final SimpleDateFormat timeFormat;
+    // Rows from the listener, then local echoes not yet delivered by it
+    private final List<MessageRow> messages = new ArrayList<>();
+    private final List<MessageRow> pending = new ArrayList<>();
+    private final String currentUserId;
+    private final OnRetryListener retryListener;
 
-    public MessagesAdapter(List<Message> messages, String currentUserId) {
-        this.messages = messages;
+    public MessagesAdapter(String currentUserId, OnRetryListener retryListener) {
         this.currentUserId = currentUserId;
+        this.retryListener = retryListener;
+    }
+
+    // Replace everything, used for the first snapshot only
+    public void setMessages(List<Message> newMessages) {
+        messages.clear();
+        for (Message message : newMessages) {
+            messages.add(reconcile(message));
+        }
+        notifyDataSetChanged();
+    }
+
+    // Replace the listened rows from position on, keeping the ones above
+    public void replaceFrom(int position, List<Message> newMessages) {
+        messages.subList(Math.min(position, messages.size()), messages.size()).clear();
+        for (Message message : newMessages) {
+            messages.add(reconcile(message));
+        }
+        notifyDataSetChanged();
+    }
+
+    // Insert an older page above everything shown
+    public void prependMessages(List<Message> older) {
+        if (older.isEmpty()) return;
+        messages.addAll(0, rowsOf(older));
+        notifyItemRangeInserted(0, older.size());
+        notifySenderNameChanged(older.size());
+    }
+
+    // Show a message sent from this device before the listener has it
+    public void addPending(Message message) {
+        pending.add(MessageRow.from(message, currentUserId));
+        notifyItemInserted(getItemCount() - 1);
+    }
+
+    // Refresh the delivery state of a row sent from this device
+    public void updateSendState(Message message) {
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            if (pending.get(i).getId().equals(message.getId())) {
+                pending.get(i).getMessage().setSendState(message.getSendState());
+                notifyItemChanged(messages.size() + i, PAYLOAD_SEND_STATE);
+                return;
+            }
+        }
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).getId().equals(message.getId())) {
+                messages.get(i).getMessage().setSendState(message.getSendState());
+                notifyItemChanged(i, PAYLOAD_SEND_STATE);
+                return;
+            }
+        }
+        // A rejected write can be rolled back out of the listener; keep it visible to retry
+        if (message.getSendState() == Message.SendState.FAILED) {
+            addPending(message);
+        }
+    }
+
+    // Apply listener deltas in order, notifying only the affected rows
+    public void applyChanges(List<MessageChange> changes) {
+        for (MessageChange change : changes) {
+            int oldIndex = change.getOldIndex();
+            int newIndex = change.getNewIndex();
+
+            switch (change.getType()) {
+                case ADDED:
+                    addFromListener(newIndex, change.getMessage());
+                    break;
+                case MODIFIED:
+                    if (oldIndex != newIndex) {
+                        messages.remove(oldIndex);
+                        messages.add(newIndex, MessageRow.from(change.getMessage(), currentUserId));
+                        notifyItemMoved(oldIndex, newIndex);
+                        notifySenderNameChanged(oldIndex);
+                        notifySenderNameChanged(newIndex + 1);
+                    } else {
+                        messages.set(newIndex, MessageRow.from(change.getMessage(), currentUserId));
+                    }
+                    notifyItemChanged(newIndex);
+                    break;
+                case REMOVED:
+                    messages.remove(oldIndex);
+                    notifyItemRemoved(oldIndex);
+                    notifySenderNameChanged(oldIndex);
+                    break;
+            }
+        }
+    }
+
+    private void addFromListener(int index, Message message) {
+        int pendingIndex = indexOfPending(message.getId());
+        if (pendingIndex == 0 && index == messages.size()) {
+            // The usual case: the oldest local echo arrives at the end, in the row it already has
+            messages.add(reconcile(message));
+            notifyItemChanged(index);
+            return;
+        }
+        if (pendingIndex >= 0) {
+            notifyItemRemoved(messages.size() + pendingIndex);
+        }
+        messages.add(index, reconcile(message));
+        notifyItemInserted(index);
+        notifySenderNameChanged(index + 1);
+    }
+
+    // Drop the local echo of a listened message, carrying over its delivery state
+    private MessageRow reconcile(Message message) {
+        int pendingIndex = indexOfPending(message.getId());
+        if (pendingIndex >= 0) {
+            message.setSendState(pending.remove(pendingIndex).getSendState());
+        }
+        return MessageRow.from(message, currentUserId);
+    }
+
+    private List<MessageRow> rowsOf(List<Message> source) {
+        List<MessageRow> rows = new ArrayList<>(source.size());
+        for (Message message : source) {
+            rows.add(MessageRow.from(message, currentUserId));
+        }
+        return rows;
+    }
 
-        isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        timeFormat = new SimpleDateFormat("hh:mm a", Locale.getDefault());
+    private int indexOfPending(String messageId) {
+        for (int i = 0; i < pending.size(); i++) {
+            if (pending.get(i).getId().equals(messageId)) return i;
+        }
+        return -1;
+    }
+
+    public Message getItem(int position) {
+        return getRow(position).getMessage();
+    }
+
+    private MessageRow getRow(int position) {
+        int listened = messages.size();
+        return position < listened ? messages.get(position) : pending.get(position - listened);
+    }
+
+    // Rows that came from the listener, excluding local echoes
+    public int getListenedCount() {
+        return messages.size();
+    }
+
+    @Override
+    public int getItemCount() {
+        return messages.size() + pending.size();
+    }
+
+    // The row below a change may need to show or hide its sender header
+    private void notifySenderNameChanged(int position) {
+        if (position >= 0 && position < getItemCount()) {
+            notifyItemChanged(position, PAYLOAD_SENDER_NAME);
+        }
     }
 
     @Override
     public int getItemViewType(int position) {
-        Message message = messages.get(position);
-        if (currentUserId.equals(message.getSenderId())) {
+        if (getRow(position).isOutgoing()) {
             return VIEW_TYPE_SENT;
         } else {
             return VIEW_TYPE_RECEIVED;
@@ -61,56 +221,71 @@ public class MessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        Message message = messages.get(position);
+        MessageRow row = getRow(position);
 
         if (holder instanceof SentMessageViewHolder) {
             SentMessageViewHolder sentHolder = (SentMessageViewHolder) holder;
-            sentHolder.textMessage.setText(message.getText());
-            sentHolder.textTime.setText(formatTime(message.getTimestamp()));
+            sentHolder.textMessage.setText(row.getText());
+            bindSendState(sentHolder, row);
         } else if (holder instanceof ReceivedMessageViewHolder) {
             ReceivedMessageViewHolder receivedHolder = (ReceivedMessageViewHolder) holder;
-            receivedHolder.textMessage.setText(message.getText());
-            receivedHolder.textTime.setText(formatTime(message.getTimestamp()));
-            
-            // Show sender name if different from previous message
-            boolean showName = shouldShowSenderName(position);
-            if (showName) {
-                receivedHolder.textSenderName.setText(message.getSenderName());
-                receivedHolder.textSenderName.setVisibility(View.VISIBLE);
-            } else {
-                receivedHolder.textSenderName.setVisibility(View.GONE);
-            }
+            receivedHolder.textMessage.setText(row.getText());
+            receivedHolder.textTime.setText(row.getTime());
+
+            bindSenderName(receivedHolder, position);
         }
     }
 
-    private boolean shouldShowSenderName(int position) {
-        if (position == 0) return true;
-        Message current = messages.get(position);
-        Message previous = messages.get(position - 1);
-        return !current.getSenderId().equals(previous.getSenderId());
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else if (holder instanceof ReceivedMessageViewHolder) {
+            bindSenderName((ReceivedMessageViewHolder) holder, position);
+        } else if (holder instanceof SentMessageViewHolder) {
+            bindSendState((SentMessageViewHolder) holder, getRow(position));
+        }
     }
 
-    private String formatTime(String timestamp) {
-        if (timestamp == null || timestamp.isEmpty()) {
-            return "";
+    // Time once delivered, otherwise the delivery state; failed rows retry on tap
+    private void bindSendState(SentMessageViewHolder holder, MessageRow row) {
+        Message.SendState state = row.getSendState();
+        if (state == Message.SendState.SENDING) {
+            holder.textTime.setText(R.string.message_sending);
+        } else if (state == Message.SendState.FAILED) {
+            holder.textTime.setText(R.string.message_failed);
+        } else {
+            holder.textTime.setText(row.getTime());
         }
+        holder.itemView.setAlpha(state == Message.SendState.SENDING ? 0.6f : 1.0f);
 
-        try {
-            Date date = isoFormat.parse(timestamp);
-            if (date != null) {
-                return timeFormat.format(date);
-            }
-        } catch (ParseException e) {
-            return "";
+        if (state == Message.SendState.FAILED) {
+            holder.itemView.setOnClickListener(v -> retryListener.onRetry(row.getMessage()));
+        } else {
+            holder.itemView.setOnClickListener(null);
+            holder.itemView.setClickable(false);
         }
-        return "";
     }
 
-    @Override
-    public int getItemCount() {
-        return messages.size();
+    // Show sender name if different from previous message
+    private void bindSenderName(ReceivedMessageViewHolder holder, int position) {
+        if (shouldShowSenderName(position)) {
+            holder.textSenderName.setText(getRow(position).getSenderName());
+            holder.textSenderName.setVisibility(View.VISIBLE);
+        } else {
+            holder.textSenderName.setVisibility(View.GONE);
+        }
     }
 
+    private boolean shouldShowSenderName(int position) {
+        if (position == 0) return true;
+        MessageRow current = getRow(position);
+        MessageRow previous = getRow(position - 1);
+        return !current.getSenderId().equals(previous.getSenderId());
+    }
+
+
     // ViewHolder for sent messages (right side)
     public static class SentMessageViewHolder extends RecyclerView.ViewHolder {
         TextView textMessage;
@@ -37,7 +37,7 @@ public class MyClaimsActivity extends AppCompatActivity {
     private void setupUI() {
         binding.backButton.setOnClickListener(v -> finish());
 
-        adapter = new MyClaimsAdapter(claimsList, claim -> {
+        adapter = new MyClaimsAdapter(claim -> {
             // Open item detail when claim is clicked
             Intent intent = new Intent(this, ItemDetailActivity.class);
             intent.putExtra("ITEM_ID", claim.getItemId());
@@ -65,7 +65,7 @@ public class MyClaimsActivity extends AppCompatActivity {
                 binding.progressBar.setVisibility(View.GONE);
                 claimsList.clear();
                 claimsList.addAll(claims);
-                adapter.notifyDataSetChanged();
+                adapter.submitList(new ArrayList<>(claimsList));
 
                 if (claims.isEmpty()) {
                     binding.emptyState.setVisibility(View.VISIBLE);
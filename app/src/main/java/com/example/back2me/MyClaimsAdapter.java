@@ -8,32 +8,18 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
-public class MyClaimsAdapter extends RecyclerView.Adapter<MyClaimsAdapter.ClaimViewHolder> {
+public class MyClaimsAdapter extends DiffListAdapter<Claim, MyClaimsAdapter.ClaimViewHolder> {
 
-    private final List<Claim> claims;
     private final OnClaimClickListener listener;
 
-    private final SimpleDateFormat isoFormat;
-    private final SimpleDateFormat displayFormat;
-
     public interface OnClaimClickListener {
         void onClaimClick(Claim claim);
     }
 
-    public MyClaimsAdapter(List<Claim> claims, OnClaimClickListener listener) {
-        this.claims = claims;
+    public MyClaimsAdapter(OnClaimClickListener listener) {
         this.listener = listener;
-
-        isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        displayFormat = new SimpleDateFormat("MMM d, yyyy 'at' h:mm a", Locale.getDefault());
     }
 
     @NonNull
@@ -44,9 +30,33 @@ public class MyClaimsAdapter extends RecyclerView.Adapter<MyClaimsAdapter.ClaimV
         return new ClaimViewHolder(view);
     }
 
+    @Override
+    protected String getItemKey(Claim claim) {
+        return claim.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(Claim oldClaim, Claim newClaim) {
+        return ClaimDiff.contentsTheSame(oldClaim, newClaim);
+    }
+
+    @Override
+    protected Object getChangePayload(Claim oldClaim, Claim newClaim) {
+        return ClaimDiff.changePayload(oldClaim, newClaim);
+    }
+
+    @Override
+    protected void onBindPayloads(@NonNull ClaimViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(ClaimDiff.PAYLOAD_STATUS)) {
+            bindStatus(holder, getItem(position).getStatus());
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ClaimViewHolder holder, int position) {
-        Claim claim = claims.get(position);
+        Claim claim = getItem(position);
 
         // Item name
         holder.textItemName.setText(claim.getItemName());
@@ -55,20 +65,7 @@ public class MyClaimsAdapter extends RecyclerView.Adapter<MyClaimsAdapter.ClaimV
         holder.textMessage.setText(claim.getMessage());
 
         // Status with color
-        String status = claim.getStatus();
-        holder.textStatus.setText(status.substring(0, 1).toUpperCase() + status.substring(1));
-        
-        switch (status.toLowerCase()) {
-            case "approved":
-                holder.textStatus.setBackgroundResource(R.drawable.badge_found);
-                break;
-            case "rejected":
-                holder.textStatus.setBackgroundResource(R.drawable.badge_lost);
-                break;
-            default: // pending
-                holder.textStatus.setBackgroundResource(R.drawable.badge_pending);
-                break;
-        }
+        bindStatus(holder, claim.getStatus());
 
         // Item status (lost/found)
         String itemStatus = claim.getItemStatus();
@@ -81,14 +78,7 @@ public class MyClaimsAdapter extends RecyclerView.Adapter<MyClaimsAdapter.ClaimV
         }
 
         // Date
-        try {
-            Date date = isoFormat.parse(claim.getCreatedDate());
-            if (date != null) {
-                holder.textDate.setText(displayFormat.format(date));
-            }
-        } catch (ParseException e) {
-            holder.textDate.setText(claim.getCreatedDate());
-        }
+        holder.textDate.setText(Timestamps.formatDateTime(claim.getCreatedAt()));
 
         // Click listener
         holder.itemView.setOnClickListener(v -> {
@@ -98,9 +88,20 @@ public class MyClaimsAdapter extends RecyclerView.Adapter<MyClaimsAdapter.ClaimV
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return claims.size();
+    private void bindStatus(ClaimViewHolder holder, String status) {
+        holder.textStatus.setText(status.substring(0, 1).toUpperCase() + status.substring(1));
+
+        switch (status.toLowerCase()) {
+            case "approved":
+                holder.textStatus.setBackgroundResource(R.drawable.badge_found);
+                break;
+            case "rejected":
+                holder.textStatus.setBackgroundResource(R.drawable.badge_lost);
+                break;
+            default: // pending
+                holder.textStatus.setBackgroundResource(R.drawable.badge_pending);
+                break;
+        }
     }
 
     static class ClaimViewHolder extends RecyclerView.ViewHolder {
@@ -46,7 +46,7 @@ public class MyItemsActivity extends AppCompatActivity implements MyItemsAdapter
     }
 
     private void setupRecyclerView() {
-        adapter = new MyItemsAdapter(items, this);
+        adapter = new MyItemsAdapter(this);
         binding.recyclerMyItems.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerMyItems.setAdapter(adapter);
     }
@@ -67,7 +67,7 @@ public class MyItemsActivity extends AppCompatActivity implements MyItemsAdapter
                 binding.progressBar.setVisibility(View.GONE);
                 items.clear();
                 items.addAll(itemList);
-                adapter.notifyDataSetChanged();
+                adapter.submitList(new ArrayList<>(items));
                 updateEmptyState();
             }
 
@@ -158,9 +158,10 @@ public class MyItemsActivity extends AppCompatActivity implements MyItemsAdapter
     private void markAsResolved(Item item) {
         binding.progressBar.setVisibility(View.VISIBLE);
 
-        item.setStatus("resolved");
+        // Update a copy so the displayed row still diffs against the old status
+        Item resolved = item.copyWithStatus("resolved");
 
-        ItemRepository.updateItem(item, new ItemRepository.UpdateCallback() {
+        ItemRepository.updateItem(resolved, new ItemRepository.UpdateCallback() {
             @Override
             public void onSuccess() {
                 binding.progressBar.setVisibility(View.GONE);
@@ -13,16 +13,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.google.android.material.card.MaterialCardView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
-public class MyItemsAdapter extends RecyclerView.Adapter<MyItemsAdapter.ViewHolder> {
+public class MyItemsAdapter extends DiffListAdapter<Item, MyItemsAdapter.ViewHolder> {
 
-    private List<Item> items;
     private OnItemActionListener listener;
 
     public interface OnItemActionListener {
@@ -33,8 +27,7 @@ public class MyItemsAdapter extends RecyclerView.Adapter<MyItemsAdapter.ViewHold
         void onMarkResolvedClick(Item item);
     }
 
-    public MyItemsAdapter(List<Item> items, OnItemActionListener listener) {
-        this.items = items;
+    public MyItemsAdapter(OnItemActionListener listener) {
         this.listener = listener;
     }
 
@@ -47,14 +40,33 @@ public class MyItemsAdapter extends RecyclerView.Adapter<MyItemsAdapter.ViewHold
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Item item = items.get(position);
-        holder.bind(item);
+    protected String getItemKey(Item item) {
+        return item.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(Item oldItem, Item newItem) {
+        return ItemDiff.contentsTheSame(oldItem, newItem);
+    }
+
+    @Override
+    protected Object getChangePayload(Item oldItem, Item newItem) {
+        return ItemDiff.changePayload(oldItem, newItem);
+    }
+
+    @Override
+    protected void onBindPayloads(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(ItemDiff.PAYLOAD_STATUS)) {
+            holder.bindStatus(getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     @Override
-    public int getItemCount() {
-        return items.size();
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Item item = getItem(position);
+        holder.bind(item);
     }
 
     class ViewHolder extends RecyclerView.ViewHolder {
@@ -80,20 +92,9 @@ public class MyItemsAdapter extends RecyclerView.Adapter<MyItemsAdapter.ViewHold
         void bind(Item item) {
             textName.setText(item.getName());
             textLocation.setText(item.getLocation());
-            textDate.setText(formatDate(item.getCreatedDate()));
+            textDate.setText(Timestamps.formatDate(item.getCreatedAt()));
 
-            // Status badge
-            String status = item.getStatus();
-            if ("lost".equalsIgnoreCase(status)) {
-                textStatus.setText(R.string.lost);
-                textStatus.setBackgroundResource(R.drawable.badge_lost);
-            } else if ("found".equalsIgnoreCase(status)) {
-                textStatus.setText(R.string.found);
-                textStatus.setBackgroundResource(R.drawable.badge_found);
-            } else {
-                textStatus.setText(R.string.resolved);
-                textStatus.setBackgroundResource(R.drawable.badge_resolved);
-            }
+            bindStatus(item);
 
             // Image
             String imageUrl = item.getImageUrl();
@@ -114,6 +115,21 @@ public class MyItemsAdapter extends RecyclerView.Adapter<MyItemsAdapter.ViewHold
                     listener.onItemClick(item);
                 }
             });
+        }
+
+        // Status badge and the menu that depends on it
+        void bindStatus(Item item) {
+            String status = item.getStatus();
+            if ("lost".equalsIgnoreCase(status)) {
+                textStatus.setText(R.string.lost);
+                textStatus.setBackgroundResource(R.drawable.badge_lost);
+            } else if ("found".equalsIgnoreCase(status)) {
+                textStatus.setText(R.string.found);
+                textStatus.setBackgroundResource(R.drawable.badge_found);
+            } else {
+                textStatus.setText(R.string.resolved);
+                textStatus.setBackgroundResource(R.drawable.badge_resolved);
+            }
 
             buttonMenu.setOnClickListener(v -> showPopupMenu(v, item));
         }
@@ -149,20 +165,5 @@ public class MyItemsAdapter extends RecyclerView.Adapter<MyItemsAdapter.ViewHold
 
             popup.show();
         }
-
-        private String formatDate(String isoDate) {
-            if (isoDate == null || isoDate.isEmpty()) return "";
-
-            try {
-                SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-                isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-                Date date = isoFormat.parse(isoDate);
-
-                SimpleDateFormat displayFormat = new SimpleDateFormat("MMM d, yyyy", Locale.getDefault());
-                return displayFormat.format(date);
-            } catch (ParseException e) {
-                return isoDate;
-            }
-        }
     }
 }
\ No newline at end of file
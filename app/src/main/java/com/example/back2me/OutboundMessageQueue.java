@@ -0,0 +1,198 @@
+package com.example.back2me;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outgoing messages for one conversation.
+ *
+ * A message is shown as soon as it is queued, in the SENDING state. Sends
+ * made in quick succession are committed together in one batch. Offline,
+ * a batch just stays SENDING: Firestore holds the writes and the commit
+ * completes once the server is reached, so the backoff below never sees
+ * a dropped connection. It covers transient server errors only. A batch
+ * the server refuses outright, e.g. for permissions, is marked FAILED at
+ * once, as is one that is still failing after the last attempt; it stays
+ * FAILED until the user retries it. Every message keeps the ID it was
+ * queued with, so the listener's copy can be matched to it and a retried
+ * write cannot create a duplicate. Main thread only.
+ */
+public class OutboundMessageQueue {
+
+    private static final String TAG = "OutboundMessageQueue";
+
+    public interface Listener {
+        // A new message to show right away
+        void onQueued(Message message);
+        void onStateChanged(Message message);
+    }
+
+    // Quiet period that lets rapid sends share one commit
+    private static final long COALESCE_DELAY_MS = 150;
+    private static final int MAX_BATCH_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    private final String conversationId;
+    private final String senderId;
+    private final String senderName;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Messages not yet acknowledged, in send order
+    private final Map<String, Message> outstanding = new LinkedHashMap<>();
+    // Failed attempts so far for each outstanding message
+    private final Map<String, Integer> attempts = new HashMap<>();
+    // Messages waiting for the next commit
+    private final List<Message> ready = new ArrayList<>();
+    private boolean shutdown = false;
+
+    private final Runnable flushRunnable = this::flush;
+
+    public OutboundMessageQueue(String conversationId, String senderId, String senderName, Listener listener) {
+        this.conversationId = conversationId;
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.listener = listener;
+    }
+
+    // Queue a new message and show it immediately
+    public Message send(String text) {
+        Message message = new Message(ChatRepository.newMessageId(conversationId), senderId, senderName,
+                text, ChatRepository.newMessageTimestamp(), false);
+        message.setSendState(Message.SendState.SENDING);
+
+        outstanding.put(message.getId(), message);
+        attempts.put(message.getId(), 0);
+        listener.onQueued(message);
+        enqueue(message, COALESCE_DELAY_MS);
+        return message;
+    }
+
+    // Send a FAILED message again, starting a fresh round of attempts
+    public void retry(String messageId) {
+        Message message = outstanding.get(messageId);
+        if (message == null || message.getSendState() != Message.SendState.FAILED) return;
+
+        attempts.put(messageId, 0);
+        message.setSendState(Message.SendState.SENDING);
+        listener.onStateChanged(message);
+        enqueue(message, 0);
+    }
+
+    // Stop retrying; writes already handed to Firestore still complete
+    public void shutdown() {
+        shutdown = true;
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    private void enqueue(Message message, long delayMs) {
+        if (shutdown) return;
+        ready.add(message);
+
+        handler.removeCallbacks(flushRunnable);
+        if (ready.size() >= MAX_BATCH_SIZE || delayMs == 0) {
+            flush();
+        } else {
+            handler.postDelayed(flushRunnable, delayMs);
+        }
+    }
+
+    private void flush() {
+        handler.removeCallbacks(flushRunnable);
+        while (!ready.isEmpty() && !shutdown) {
+            int size = Math.min(ready.size(), MAX_BATCH_SIZE);
+            List<Message> batch = new ArrayList<>(ready.subList(0, size));
+            ready.subList(0, size).clear();
+            commit(batch);
+        }
+    }
+
+    private void commit(List<Message> batch) {
+        ChatRepository.sendMessages(conversationId, batch, new ChatRepository.OperationCallback() {
+            @Override
+            public void onSuccess() {
+                for (Message message : batch) {
+                    outstanding.remove(message.getId());
+                    attempts.remove(message.getId());
+                    message.setSendState(Message.SendState.SENT);
+                    listener.onStateChanged(message);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error sending " + batch.size() + " message(s)", e);
+                if (isRetryable(e)) {
+                    scheduleRetry(batch);
+                } else {
+                    fail(batch);
+                }
+            }
+        });
+    }
+
+    // Transient server trouble; a refused write (permissions, bad data) fails the same way every time
+    private static boolean isRetryable(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return true;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case ABORTED:
+            case UNAVAILABLE:
+            case DEADLINE_EXCEEDED:
+            case RESOURCE_EXHAUSTED:
+            case INTERNAL:
+            case UNKNOWN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Mark the batch FAILED at once, leaving it to the user to retry
+    private void fail(List<Message> batch) {
+        for (Message message : batch) {
+            attempts.put(message.getId(), MAX_ATTEMPTS);
+            message.setSendState(Message.SendState.FAILED);
+            listener.onStateChanged(message);
+        }
+    }
+
+    // Back off and resend the batch together, giving up on messages out of attempts
+    private void scheduleRetry(List<Message> batch) {
+        if (shutdown) return;
+
+        List<Message> again = new ArrayList<>(batch.size());
+        int failed = 1;
+        for (Message message : batch) {
+            String id = message.getId();
+            int messageAttempts = attempts.containsKey(id) ? attempts.get(id) + 1 : 1;
+            attempts.put(id, messageAttempts);
+
+            if (messageAttempts >= MAX_ATTEMPTS) {
+                message.setSendState(Message.SendState.FAILED);
+                listener.onStateChanged(message);
+            } else {
+                again.add(message);
+                failed = Math.max(failed, messageAttempts);
+            }
+        }
+        if (again.isEmpty()) return;
+
+        long delay = Math.min(INITIAL_BACKOFF_MS << (failed - 1), MAX_BACKOFF_MS);
+        handler.postDelayed(() -> {
+            if (shutdown) return;
+            ready.addAll(again);
+            flush();
+        }, delay);
+    }
+}
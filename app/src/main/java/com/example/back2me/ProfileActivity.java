@@ -107,6 +107,13 @@ public class ProfileActivity extends AppCompatActivity {
                     .setMessage("Are you sure you want to logout?")
                     .setPositiveButton("Logout", (dialog, which) -> {
                         auth.signOut();
+                        // The local mirror holds this account's claims
+                        LocalStore store = LocalStore.getInstance();
+                        if (store != null) {
+                            store.clear();
+                        }
+                        // Posts still queued would be made by the wrong account
+                        ItemPostQueue.cancelAll(this);
                         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
                         Intent intent = new Intent(this, LoginActivity.class);
                         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -68,6 +68,13 @@ public class ProfileFragment extends Fragment {
 
         binding.cardLogout.setOnClickListener(v -> {
             auth.signOut();
+            // The local mirror holds this account's claims
+            LocalStore store = LocalStore.getInstance();
+            if (store != null) {
+                store.clear();
+            }
+            // Posts still queued would be made by the wrong account
+            ItemPostQueue.cancelAll(requireContext());
             Toast.makeText(requireContext(), R.string.logged_out, Toast.LENGTH_SHORT).show();
             Intent intent = new Intent(requireContext(), LoginActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -0,0 +1,53 @@
+package com.example.back2me;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link DiffListAdapter} over immutable display rows built from model
+ * objects. Rows are built on a background thread when data is submitted,
+ * with every string already formatted, so binding is plain field
+ * assignment however fast the list is flung.
+ */
+public abstract class RowListAdapter<S, R, VH extends RecyclerView.ViewHolder>
+        extends DiffListAdapter<R, VH> {
+
+    // Shared by all row adapters; building rows is short and ordered work
+    private static final ExecutorService rowExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Bumped on every submit so rows built for an older list are dropped
+    private int generation = 0;
+
+    // Build the display row for one model object; runs off the main thread
+    protected abstract R buildRow(S source);
+
+    // Build rows for the models and show them; call on the main thread
+    public void submitSource(List<S> sources) {
+        submitSource(sources, null);
+    }
+
+    // Same as submitSource, running the callback once the rows are on screen
+    public void submitSource(List<S> sources, Runnable commitCallback) {
+        final int submitGeneration = ++generation;
+        final List<S> snapshot = new ArrayList<>(sources);
+
+        rowExecutor.execute(() -> {
+            List<R> rows = new ArrayList<>(snapshot.size());
+            for (S source : snapshot) {
+                rows.add(buildRow(source));
+            }
+            mainHandler.post(() -> {
+                if (submitGeneration != generation) return;
+                submitList(rows, commitCallback);
+            });
+        });
+    }
+}
@@ -20,26 +20,47 @@ public class SearchActivity extends AppCompatActivity {
     private ActivitySearchBinding binding;
     private ItemListAdapter searchAdapter;
 
-    private List<Item> allItems = new ArrayList<>();
+    // Replaced (never mutated) when a page arrives, so the search thread can read it safely
+    private volatile List<Item> allItems = new ArrayList<>();
     private List<Item> filteredItems = new ArrayList<>();
     private String currentFilter = "all"; // "all", "lost", "found"
 
+    // Set while the whole collection is being loaded into the search index
+    private boolean indexLoading = false;
+
+    private final ItemSearchIndex searchIndex = ItemSearchIndex.getInstance();
+    private final ItemFeedPager feedPager = new ItemFeedPager(ItemRepository.DEFAULT_PAGE_SIZE);
+    private SearchPipeline searchPipeline;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         binding = ActivitySearchBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
+        searchPipeline = new SearchPipeline(this::matchItems, this::showResults);
+
         setupRecyclerView();
         setupClickListeners();
         setupSearchInput();
         loadAllItems();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (searchPipeline != null) {
+            searchPipeline.shutdown();
+        }
+    }
+
     private void setupRecyclerView() {
-        searchAdapter = new ItemListAdapter(filteredItems, this::openItemDetail);
-        binding.recyclerSearchResults.setLayoutManager(new LinearLayoutManager(this));
+        searchAdapter = new ItemListAdapter(this::openItemDetail);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        binding.recyclerSearchResults.setLayoutManager(layoutManager);
         binding.recyclerSearchResults.setAdapter(searchAdapter);
+        binding.recyclerSearchResults.addOnScrollListener(
+                new InfiniteScrollListener(layoutManager, this::loadNextPage));
     }
 
     private void setupClickListeners() {
@@ -70,8 +91,8 @@ public class SearchActivity extends AppCompatActivity {
                         s == null || s.length() == 0 ? View.GONE : View.VISIBLE
                 );
 
-                // Apply filter
-                applyFilters();
+                // Debounced - runs once typing pauses
+                searchPipeline.submit(getSearchQuery(), getStatusFilter());
             }
 
             @Override
@@ -94,11 +115,17 @@ public class SearchActivity extends AppCompatActivity {
         binding.progressBar.setVisibility(View.VISIBLE);
         binding.layoutEmptyState.setVisibility(View.GONE);
 
-        ItemRepository.getAllItems(new ItemRepository.ItemsCallback() {
+        feedPager.reset();
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        feedPager.loadNextPage(new ItemFeedPager.PageListener() {
             @Override
-            public void onSuccess(List<Item> items) {
-                allItems.clear();
-                allItems.addAll(items);
+            public void onPageLoaded(List<Item> items, boolean firstPage) {
+                List<Item> updated = firstPage ? new ArrayList<>() : new ArrayList<>(allItems);
+                updated.addAll(items);
+                allItems = updated;
 
                 applyFilters();
 
@@ -108,6 +135,8 @@ public class SearchActivity extends AppCompatActivity {
             @Override
             public void onError(Exception e) {
                 binding.progressBar.setVisibility(View.GONE);
+                updateEmptyState(false);
+                updateResultCount(false);
                 Toast.makeText(
                         SearchActivity.this,
                         "Error loading items: " + e.getMessage(),
@@ -117,49 +146,111 @@ public class SearchActivity extends AppCompatActivity {
         });
     }
 
-    private void applyFilters() {
-        String searchQuery = binding.inputSearch.getText().toString().trim().toLowerCase();
-
-        filteredItems.clear();
-
-        for (Item item : allItems) {
-            // Check status filter
-            boolean matchesStatus;
-            switch (currentFilter) {
-                case "lost":
-                    matchesStatus = item.getStatus().toLowerCase().equals("lost");
-                    break;
-                case "found":
-                    matchesStatus = item.getStatus().toLowerCase().equals("found");
-                    break;
-                default:
-                    matchesStatus = true; // "all"
-                    break;
+    // Keep paging while the results are too short to scroll, since the scroll
+    // listener can't ask for more then. A query stops needing pages once the
+    // whole collection is indexed, and waits while that load is running.
+    private void fillViewportIfNeeded(String searchQuery) {
+        if (!searchQuery.isEmpty() && (indexLoading || ItemRepository.isSearchIndexComplete())) return;
+
+        binding.recyclerSearchResults.post(() -> {
+            if (feedPager.hasMore() && !binding.recyclerSearchResults.canScrollVertically(1)) {
+                loadNextPage();
             }
+        });
+    }
 
-            // Check search query
-            boolean matchesSearch;
-            if (searchQuery.isEmpty()) {
-                matchesSearch = true;
-            } else {
-                matchesSearch = item.getName().toLowerCase().contains(searchQuery) ||
-                        item.getLocation().toLowerCase().contains(searchQuery) ||
-                        item.getDescription().toLowerCase().contains(searchQuery);
+    // Whether more matches may still arrive for this query
+    private boolean resultsMayGrow(String searchQuery) {
+        if (searchQuery.isEmpty()) return feedPager.hasMore();
+        if (indexLoading) return true;
+        return !ItemRepository.isSearchIndexComplete() && feedPager.hasMore();
+    }
+
+    // The index only holds what the feeds have paged in, so a query first loads the whole collection
+    private void loadSearchIndexIfNeeded(String searchQuery) {
+        if (searchQuery.isEmpty() || indexLoading || ItemRepository.isSearchIndexComplete()) return;
+
+        indexLoading = true;
+        binding.progressBar.setVisibility(View.VISIBLE);
+        ItemRepository.loadSearchIndex(new ItemRepository.IndexCallback() {
+            @Override
+            public void onCachedLoaded() {
+                // Answer from the mirror while the sync runs
+                applyFilters();
+            }
+
+            @Override
+            public void onSuccess() {
+                indexLoading = false;
+                binding.progressBar.setVisibility(View.GONE);
+                applyFilters();
             }
 
-            if (matchesStatus && matchesSearch) {
-                filteredItems.add(item);
+            @Override
+            public void onError(Exception e) {
+                indexLoading = false;
+                binding.progressBar.setVisibility(View.GONE);
+                // Fall back to paging through the feed
+                applyFilters();
+                Toast.makeText(
+                        SearchActivity.this,
+                        "Error searching items: " + e.getMessage(),
+                        Toast.LENGTH_LONG
+                ).show();
             }
+        });
+    }
+
+    // Re-run the current query immediately
+    private void applyFilters() {
+        searchPipeline.submitNow(getSearchQuery(), getStatusFilter());
+    }
+
+    private String getSearchQuery() {
+        return binding.inputSearch.getText().toString().trim();
+    }
+
+    private String getStatusFilter() {
+        return currentFilter.equals("all") ? null : currentFilter;
+    }
+
+    // Runs on the search thread
+    private List<Item> matchItems(String searchQuery, String status) {
+        if (searchQuery.isEmpty()) {
+            // No query - just apply the status filter to the loaded feed
+            List<Item> source = allItems;
+            List<Item> matches = new ArrayList<>(source.size());
+            for (Item item : source) {
+                if (status == null || status.equalsIgnoreCase(item.getStatus())) {
+                    matches.add(item);
+                }
+            }
+            return matches;
         }
 
-        // Update UI
-        searchAdapter.notifyDataSetChanged();
-        updateEmptyState();
-        updateResultCount();
+        // Ranked prefix search; see loadSearchIndexIfNeeded for how the index gets every item
+        return searchIndex.search(searchQuery, status);
+    }
+
+    // Runs on the main thread with the latest results only
+    private void showResults(String searchQuery, List<Item> results) {
+        filteredItems = results;
+        searchAdapter.submitSource(results);
+        loadSearchIndexIfNeeded(searchQuery);
+        boolean stillSearching = resultsMayGrow(searchQuery);
+        updateEmptyState(stillSearching);
+        updateResultCount(stillSearching);
+        fillViewportIfNeeded(searchQuery);
     }
 
-    private void updateEmptyState() {
-        if (filteredItems.isEmpty()) {
+    // With nothing found yet but more to look through, keep the spinner instead of "no results"
+    private void updateEmptyState(boolean stillSearching) {
+        if (filteredItems.isEmpty() && stillSearching) {
+            binding.recyclerSearchResults.setVisibility(View.GONE);
+            binding.layoutEmptyState.setVisibility(View.GONE);
+            binding.progressBar.setVisibility(View.VISIBLE);
+        } else if (filteredItems.isEmpty()) {
+            binding.progressBar.setVisibility(View.GONE);
             binding.recyclerSearchResults.setVisibility(View.GONE);
             binding.layoutEmptyState.setVisibility(View.VISIBLE);
 
@@ -178,8 +269,12 @@ public class SearchActivity extends AppCompatActivity {
         }
     }
 
-    private void updateResultCount() {
+    private void updateResultCount(boolean stillSearching) {
         int count = filteredItems.size();
+        if (count == 0 && stillSearching) {
+            binding.textResultCount.setVisibility(View.GONE);
+            return;
+        }
         String text;
         if (count == 0) {
             text = "No results";
@@ -0,0 +1,121 @@
+package com.example.back2me;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Search-as-you-type pipeline: debounces keystrokes on the main thread,
+ * runs matching on a background thread, and only publishes the result of
+ * the most recent request. The adapter diffs the published list itself.
+ */
+public class SearchPipeline {
+
+    private static final String TAG = "SearchPipeline";
+
+    // Quiet period after the last keystroke before a query runs
+    public static final long DEFAULT_DEBOUNCE_MS = 250;
+
+    public interface Matcher {
+        List<Item> match(String query, String status);
+    }
+
+    public interface ResultListener {
+        void onResults(String query, List<Item> results);
+    }
+
+    private final Matcher matcher;
+    private final ResultListener listener;
+    private final long debounceMs;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Main-thread state
+    private int generation = 0;
+    private Runnable pendingQuery;
+    private Future<?> inFlight;
+
+    public SearchPipeline(Matcher matcher, ResultListener listener) {
+        this(matcher, listener, DEFAULT_DEBOUNCE_MS);
+    }
+
+    public SearchPipeline(Matcher matcher, ResultListener listener, long debounceMs) {
+        this.matcher = matcher;
+        this.listener = listener;
+        this.debounceMs = debounceMs;
+    }
+
+    // Schedule a query after the debounce window (typing)
+    public void submit(String query, String status) {
+        schedule(query, status, debounceMs);
+    }
+
+    // Run a query right away (filter change, new data)
+    public void submitNow(String query, String status) {
+        schedule(query, status, 0);
+    }
+
+    // Drop pending work; call from onDestroy
+    public void shutdown() {
+        generation++;
+        if (pendingQuery != null) {
+            mainHandler.removeCallbacks(pendingQuery);
+            pendingQuery = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+        executor.shutdownNow();
+    }
+
+    private void schedule(String query, String status, long delayMs) {
+        if (pendingQuery != null) {
+            mainHandler.removeCallbacks(pendingQuery);
+        }
+        final int requestGeneration = ++generation;
+
+        pendingQuery = () -> {
+            pendingQuery = null;
+            run(query, status, requestGeneration);
+        };
+
+        if (delayMs > 0) {
+            mainHandler.postDelayed(pendingQuery, delayMs);
+        } else {
+            pendingQuery.run();
+        }
+    }
+
+    private void run(String query, String status, int requestGeneration) {
+        if (executor.isShutdown()) return;
+
+        // A newer query makes the one still running pointless
+        if (inFlight != null) {
+            inFlight.cancel(true);
+        }
+
+        inFlight = executor.submit(() -> {
+            if (Thread.currentThread().isInterrupted()) return;
+
+            List<Item> results = matcher.match(query, status);
+            if (Thread.currentThread().isInterrupted()) return;
+
+            mainHandler.post(() -> {
+                // Only the latest request may touch the list
+                if (requestGeneration != generation) {
+                    Log.d(TAG, "Dropping stale results for \"" + query + "\"");
+                    return;
+                }
+                inFlight = null;
+                listener.onResults(query, results);
+            });
+        });
+    }
+}
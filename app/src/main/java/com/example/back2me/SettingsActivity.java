@@ -79,6 +79,8 @@ public class SettingsActivity extends AppCompatActivity {
 
         binding.switchNotifications.setChecked(notificationsEnabled);
         binding.switchDarkMode.setChecked(darkModeEnabled);
+        binding.switchUploadWifiOnly.setChecked(
+                prefs.getBoolean(ItemPostQueue.KEY_UPLOAD_ON_WIFI_ONLY, false));
     }
 
     private void setupClickListeners() {
@@ -105,6 +107,10 @@ public class SettingsActivity extends AppCompatActivity {
             }
         });
 
+        // Photo uploads wait for an unmetered network; applies to posts queued from now on
+        binding.switchUploadWifiOnly.setOnCheckedChangeListener((buttonView, isChecked) ->
+                prefs.edit().putBoolean(ItemPostQueue.KEY_UPLOAD_ON_WIFI_ONLY, isChecked).apply());
+
         // Edit Profile
         binding.layoutEditProfile.setOnClickListener(v -> {
             startActivity(new Intent(this, EditProfileActivity.class));
@@ -168,6 +174,13 @@ public class SettingsActivity extends AppCompatActivity {
                     .setMessage(R.string.logout_confirmation)
                     .setPositiveButton(R.string.logout, (dialog, which) -> {
                         auth.signOut();
+                        // The local mirror holds this account's claims
+                        LocalStore store = LocalStore.getInstance();
+                        if (store != null) {
+                            store.clear();
+                        }
+                        // Posts still queued would be made by the wrong account
+                        ItemPostQueue.cancelAll(this);
                         Toast.makeText(this, R.string.logged_out, Toast.LENGTH_SHORT).show();
                         Intent intent = new Intent(this, LoginActivity.class);
                         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -0,0 +1,102 @@
+package com.example.back2me;
+
+import java.io.IOException;
+
+/**
+ * Finds the highest encoder quality whose output fits a byte budget.
+ *
+ * Encoded size grows with quality, so the search is a binary search over
+ * the quality range: about seven encodes for 40..100 instead of one per
+ * step. The bytes of the best fitting attempt are kept, so the winner is
+ * never encoded twice. Knows nothing about bitmaps, so the search runs
+ * the same with any encoder.
+ */
+public final class TargetSizeEncoder {
+
+    public interface Encoder {
+        byte[] encode(int quality) throws IOException;
+    }
+
+    public static final class Result {
+        private final byte[] bytes;
+        private final int quality;
+        private final boolean withinBudget;
+        private final int attempts;
+
+        Result(byte[] bytes, int quality, boolean withinBudget, int attempts) {
+            this.bytes = bytes;
+            this.quality = quality;
+            this.withinBudget = withinBudget;
+            this.attempts = attempts;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getQuality() {
+            return quality;
+        }
+
+        // False when even the lowest quality was over budget
+        public boolean isWithinBudget() {
+            return withinBudget;
+        }
+
+        // Number of times the encoder ran
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+
+    private TargetSizeEncoder() {
+    }
+
+    /**
+     * Encode at the highest quality in {@code minQuality..maxQuality}
+     * whose output is at most {@code maxBytes}. When no quality fits, the
+     * result holds the {@code minQuality} encoding and is marked over
+     * budget.
+     */
+    public static Result encode(Encoder encoder, int maxBytes, int minQuality, int maxQuality)
+            throws IOException {
+        if (minQuality > maxQuality) {
+            throw new IllegalArgumentException("minQuality " + minQuality + " > maxQuality " + maxQuality);
+        }
+
+        // The common case for small images: the best quality already fits
+        byte[] bytes = encoder.encode(maxQuality);
+        int attempts = 1;
+        if (bytes.length <= maxBytes) {
+            return new Result(bytes, maxQuality, true, attempts);
+        }
+
+        byte[] best = null;
+        int bestQuality = minQuality;
+        // Replaced by the minQuality encoding once the search gets there
+        byte[] smallest = bytes;
+        int low = minQuality;
+        int high = maxQuality - 1;
+        while (low <= high) {
+            int quality = (low + high) >>> 1;
+            bytes = encoder.encode(quality);
+            attempts++;
+            if (bytes.length <= maxBytes) {
+                best = bytes;
+                bestQuality = quality;
+                low = quality + 1;
+            } else {
+                if (quality == minQuality) {
+                    smallest = bytes;
+                }
+                high = quality - 1;
+            }
+        }
+
+        if (best != null) {
+            return new Result(best, bestQuality, true, attempts);
+        }
+        // Nothing fit, so the search ended on minQuality
+        return new Result(smallest, minQuality, false, attempts);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.back2me;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Epoch-millis conversions and the app's display formats.
+ *
+ * Stored ISO strings all use the one UTC format the app writes, so they are
+ * parsed by hand instead of through a SimpleDateFormat. Models do this once
+ * when they are built, and adapters only ever format longs. SimpleDateFormat
+ * is not thread-safe, so each pattern is cached per thread.
+ */
+public final class Timestamps {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static final ThreadLocal<SimpleDateFormat> ISO = cached("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US, UTC);
+    private static final ThreadLocal<SimpleDateFormat> ISO_MILLIS =
+            cached("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US, UTC);
+    private static final ThreadLocal<SimpleDateFormat> TIME = cached("hh:mm a", null, null);
+    private static final ThreadLocal<SimpleDateFormat> WEEKDAY = cached("EEE", null, null);
+    private static final ThreadLocal<SimpleDateFormat> SHORT_DATE = cached("MMM d", null, null);
+    private static final ThreadLocal<SimpleDateFormat> DATE = cached("MMM d, yyyy", null, null);
+    private static final ThreadLocal<SimpleDateFormat> DATE_TIME = cached("MMM d, yyyy 'at' h:mm a", null, null);
+
+    private Timestamps() {
+    }
+
+    // Current time in the stored ISO format
+    public static String nowIso() {
+        return toIso(System.currentTimeMillis());
+    }
+
+    public static String toIso(long millis) {
+        return ISO.get().format(new Date(millis));
+    }
+
+    // Stored ISO format with milliseconds, for strings that must sort finer than a second
+    public static String toIsoMillis(long millis) {
+        return ISO_MILLIS.get().format(new Date(millis));
+    }
+
+    /**
+     * Parse "yyyy-MM-ddTHH:mm:ss" as UTC, with ".SSS" milliseconds if
+     * present, ignoring anything else after the seconds. Returns 0 for null
+     * or malformed input.
+     */
+    public static long parseIso(String iso) {
+        if (iso == null || iso.length() < 19
+                || iso.charAt(4) != '-' || iso.charAt(7) != '-' || iso.charAt(10) != 'T'
+                || iso.charAt(13) != ':' || iso.charAt(16) != ':') {
+            return 0;
+        }
+        int year = digits(iso, 0, 4);
+        int month = digits(iso, 5, 2);
+        int day = digits(iso, 8, 2);
+        int hour = digits(iso, 11, 2);
+        int minute = digits(iso, 14, 2);
+        int second = digits(iso, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return 0;
+        }
+        int millis = iso.length() >= 23 && iso.charAt(19) == '.' ? Math.max(0, digits(iso, 20, 3)) : 0;
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+    }
+
+    // "09:41 AM"
+    public static String formatTime(long millis) {
+        return format(TIME, millis);
+    }
+
+    // "Mon"
+    public static String formatWeekday(long millis) {
+        return format(WEEKDAY, millis);
+    }
+
+    // "Mar 4"
+    public static String formatShortDate(long millis) {
+        return format(SHORT_DATE, millis);
+    }
+
+    // "Mar 4, 2024"
+    public static String formatDate(long millis) {
+        return format(DATE, millis);
+    }
+
+    // "Mar 4, 2024 at 9:41 AM"
+    public static String formatDateTime(long millis) {
+        return format(DATE_TIME, millis);
+    }
+
+    // Empty for a missing (zero) time
+    private static String format(ThreadLocal<SimpleDateFormat> formatter, long millis) {
+        return millis > 0 ? formatter.get().format(new Date(millis)) : "";
+    }
+
+    // A null locale or zone means the device's, read when the thread first formats
+    private static ThreadLocal<SimpleDateFormat> cached(String pattern, Locale locale, TimeZone zone) {
+        return new ThreadLocal<SimpleDateFormat>() {
+            @Override
+            protected SimpleDateFormat initialValue() {
+                SimpleDateFormat format = new SimpleDateFormat(pattern,
+                        locale != null ? locale : Locale.getDefault());
+                if (zone != null) {
+                    format.setTimeZone(zone);
+                }
+                return format;
+            }
+        };
+    }
+
+    // -1 if any character is not a digit
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.back2me;
+
+public class UserProfile {
+    private String id;
+    private String displayName;
+    private String photoUrl;
+
+    // Empty constructor for Firestore
+    public UserProfile() {
+    }
+
+    // Full constructor
+    public UserProfile(String id, String displayName, String photoUrl) {
+        this.id = id;
+        this.displayName = displayName;
+        this.photoUrl = photoUrl;
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl;
+    }
+
+    // Setters
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public void setPhotoUrl(String photoUrl) {
+        this.photoUrl = photoUrl;
+    }
+
+    // Whether there is a real name to show
+    public boolean hasDisplayName() {
+        return displayName != null && !displayName.isEmpty();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.back2me;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier cache of user profiles: an in-memory LRU in front of one small
+ * binary file per user in the app's cache directory.
+ *
+ * Entries older than {@link #FRESH_TTL_MS} are still returned, but marked
+ * stale so the caller can show them right away and refresh them in the
+ * background. Disk reads and writes run on a single background thread.
+ */
+public class UserProfileCache {
+
+    private static final String TAG = "UserProfileCache";
+
+    // After this an entry is served stale and revalidated
+    public static final long FRESH_TTL_MS = TimeUnit.HOURS.toMillis(6);
+    // After this an entry on disk is ignored and deleted
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+
+    private static final int MEMORY_ENTRIES = 200;
+    private static final int DISK_ENTRIES = 1000;
+    private static final String DIRECTORY_NAME = "user_profiles";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final UserProfileCache instance = new UserProfileCache();
+
+    public interface DiskCallback {
+        // Entries found on disk, keyed by user ID; called on the main thread
+        void onLoaded(Map<String, Entry> entries);
+    }
+
+    public static class Entry {
+        private final UserProfile profile;
+        private final long fetchedAt;
+
+        Entry(UserProfile profile, long fetchedAt) {
+            this.profile = profile;
+            this.fetchedAt = fetchedAt;
+        }
+
+        // Never null; the display name is null when the user has none
+        public UserProfile getProfile() {
+            return profile;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() - fetchedAt < FRESH_TTL_MS;
+        }
+    }
+
+    private final LruCache<String, Entry> memory = new LruCache<>(MEMORY_ENTRIES);
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Null until init, in which case the cache is memory-only
+    private volatile File directory;
+    private int writesSinceTrim = 0;
+
+    public static UserProfileCache getInstance() {
+        return instance;
+    }
+
+    // Enable the disk tier; call once from Application.onCreate
+    public void init(Context context) {
+        File dir = new File(context.getCacheDir(), DIRECTORY_NAME);
+        diskExecutor.execute(() -> {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Log.e(TAG, "Could not create " + dir);
+                return;
+            }
+            directory = dir;
+            trimDisk();
+        });
+    }
+
+    public Entry getFromMemory(String userId) {
+        return memory.get(userId);
+    }
+
+    // Look up memory misses on disk, promoting hits into memory
+    public void loadFromDisk(Collection<String> userIds, DiskCallback callback) {
+        List<String> ids = new ArrayList<>(userIds);
+        diskExecutor.execute(() -> {
+            Map<String, Entry> found = new HashMap<>();
+            File dir = directory;
+            if (dir != null) {
+                for (String id : ids) {
+                    Entry entry = readEntry(new File(dir, fileName(id)), id);
+                    if (entry != null) {
+                        memory.put(id, entry);
+                        found.put(id, entry);
+                    }
+                }
+            }
+            mainHandler.post(() -> callback.onLoaded(found));
+        });
+    }
+
+    /**
+     * Store the result of a fetch. A null profile means the user has no
+     * profile document; a name learned elsewhere is then kept.
+     */
+    public Entry put(String userId, UserProfile profile) {
+        if (profile == null) {
+            Entry existing = memory.get(userId);
+            String knownName = existing != null ? existing.getProfile().getDisplayName() : null;
+            profile = new UserProfile(userId, knownName, null);
+        }
+        Entry entry = new Entry(profile, System.currentTimeMillis());
+        memory.put(userId, entry);
+        writeLater(userId, entry);
+        return entry;
+    }
+
+    // Remember a name found outside the users collection, e.g. on a message
+    public void putDisplayName(String userId, String displayName) {
+        Entry existing = memory.get(userId);
+        String photoUrl = existing != null ? existing.getProfile().getPhotoUrl() : null;
+        put(userId, new UserProfile(userId, displayName, photoUrl));
+    }
+
+    private void writeLater(String userId, Entry entry) {
+        diskExecutor.execute(() -> {
+            File dir = directory;
+            if (dir == null) return;
+            writeEntry(new File(dir, fileName(userId)), userId, entry);
+            if (++writesSinceTrim >= DISK_ENTRIES / 10) {
+                trimDisk();
+            }
+        });
+    }
+
+    // Disk thread: drop expired files, then the least recently used beyond the cap
+    private void trimDisk() {
+        writesSinceTrim = 0;
+        File dir = directory;
+        File[] files = dir != null ? dir.listFiles() : null;
+        if (files == null) return;
+
+        long now = System.currentTimeMillis();
+        List<File> live = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (now - file.lastModified() > MAX_AGE_MS) {
+                file.delete();
+            } else {
+                live.add(file);
+            }
+        }
+        if (live.size() <= DISK_ENTRIES) return;
+
+        File[] byAge = live.toArray(new File[0]);
+        long[] modified = new long[byAge.length];
+        for (int i = 0; i < byAge.length; i++) {
+            modified[i] = byAge[i].lastModified();
+        }
+        long[] sorted = modified.clone();
+        Arrays.sort(sorted);
+        long cutoff = sorted[byAge.length - DISK_ENTRIES];
+        for (int i = 0; i < byAge.length; i++) {
+            if (modified[i] < cutoff) {
+                byAge[i].delete();
+            }
+        }
+    }
+
+    // Null unless the file holds a live entry for userId; sanitized file names can collide
+    private static Entry readEntry(File file, String userId) {
+        if (!file.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION) return null;
+            long fetchedAt = in.readLong();
+            if (System.currentTimeMillis() - fetchedAt > MAX_AGE_MS) return null;
+            String id = in.readUTF();
+            if (!id.equals(userId)) return null;
+            String displayName = readNullableString(in);
+            String photoUrl = readNullableString(in);
+            // Reads count as use for the LRU trim
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(new UserProfile(userId, displayName, photoUrl), fetchedAt);
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable cache file " + file.getName(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private static void writeEntry(File file, String userId, Entry entry) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            UserProfile profile = entry.getProfile();
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(entry.fetchedAt);
+            // Checked on read, so a colliding file name reads as a miss
+            out.writeUTF(userId);
+            writeNullableString(out, profile.getDisplayName());
+            writeNullableString(out, profile.getPhotoUrl());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write cache file " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    // User IDs are alphanumeric, but never trust them as file names. Different IDs can
+    // map to the same name, which readEntry detects through the stored ID.
+    private static String fileName(String userId) {
+        return userId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
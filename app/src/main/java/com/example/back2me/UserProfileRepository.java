@@ -0,0 +1,279 @@
+package com.example.back2me;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Resolves user profiles through {@link UserProfileCache}, falling back to
+ * batched reads of the users collection.
+ *
+ * Cached profiles are returned immediately, even when stale; stale ones are
+ * then refetched and the callback runs a second time if anything changed.
+ * Requests that reach the network during the same main-thread turn are
+ * coalesced into one flush, which reads the users collection with whereIn
+ * on the document ID, up to 30 IDs per query. An ID that is already being
+ * fetched is not fetched again; the later caller just waits for the same
+ * result. Must be called on the main thread.
+ */
+public class UserProfileRepository {
+
+    private static final String COLLECTION_NAME = "users";
+    // Firestore's limit on whereIn values
+    private static final int MAX_IDS_PER_QUERY = 30;
+
+    private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final UserProfileCache cache = UserProfileCache.getInstance();
+
+    // Callback interfaces
+    public interface ProfilesCallback {
+        // Profiles by user ID, with a null display name for users without one.
+        // May run again with fresher profiles after serving stale cache entries.
+        void onSuccess(Map<String, UserProfile> profiles);
+        void onError(Exception e);
+    }
+
+    public interface ProfileCallback {
+        // Null when the profile could not be resolved
+        void onSuccess(UserProfile profile);
+        void onError(Exception e);
+    }
+
+    // One caller waiting on a set of IDs
+    private static class Request {
+        final Set<String> remaining;
+        final Map<String, UserProfile> profiles = new HashMap<>();
+        final ProfilesCallback callback;
+        Exception error;
+
+        Request(Set<String> ids, ProfilesCallback callback) {
+            this.remaining = ids;
+            this.callback = callback;
+        }
+    }
+
+    // Callers per ID, for every ID that is queued or in flight
+    private static final Map<String, List<Request>> waitersById = new HashMap<>();
+    // IDs waiting for the next flush
+    private static final Set<String> queuedIds = new LinkedHashSet<>();
+    private static boolean flushScheduled = false;
+
+    // Get the profile of one user
+    public static void getProfile(String userId, ProfileCallback callback) {
+        getProfiles(Collections.singleton(userId), new ProfilesCallback() {
+            @Override
+            public void onSuccess(Map<String, UserProfile> profiles) {
+                callback.onSuccess(profiles.get(userId));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    // Get the profiles of several users in as few reads as possible
+    public static void getProfiles(Collection<String> userIds, ProfilesCallback callback) {
+        Set<String> misses = new HashSet<>();
+        for (String userId : userIds) {
+            if (userId != null && !userId.isEmpty()) {
+                misses.add(userId);
+            }
+        }
+
+        Map<String, UserProfile> cached = new HashMap<>();
+        Set<String> stale = new HashSet<>();
+        for (String id : new ArrayList<>(misses)) {
+            UserProfileCache.Entry entry = cache.getFromMemory(id);
+            if (entry != null) {
+                takeCached(id, entry, cached, stale);
+                misses.remove(id);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            callback.onSuccess(new HashMap<>(cached));
+            revalidate(stale, cached, callback);
+            return;
+        }
+
+        cache.loadFromDisk(misses, entries -> {
+            for (Map.Entry<String, UserProfileCache.Entry> found : entries.entrySet()) {
+                takeCached(found.getKey(), found.getValue(), cached, stale);
+                misses.remove(found.getKey());
+            }
+
+            if (misses.isEmpty()) {
+                callback.onSuccess(new HashMap<>(cached));
+                revalidate(stale, cached, callback);
+                return;
+            }
+
+            fetch(misses, new ProfilesCallback() {
+                @Override
+                public void onSuccess(Map<String, UserProfile> profiles) {
+                    cached.putAll(profiles);
+                    callback.onSuccess(new HashMap<>(cached));
+                    revalidate(stale, cached, callback);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    if (cached.isEmpty()) {
+                        callback.onError(e);
+                    } else {
+                        callback.onSuccess(new HashMap<>(cached));
+                    }
+                }
+            });
+        });
+    }
+
+    // Remember a name found outside the users collection, e.g. on a message
+    public static void rememberDisplayName(String userId, String displayName) {
+        if (userId == null || userId.isEmpty() || displayName == null || displayName.isEmpty()) return;
+        cache.putDisplayName(userId, displayName);
+    }
+
+    private static void takeCached(String id, UserProfileCache.Entry entry,
+                                   Map<String, UserProfile> cached, Set<String> stale) {
+        cached.put(id, entry.getProfile());
+        if (!entry.isFresh()) {
+            stale.add(id);
+        }
+    }
+
+    // Refetch stale entries and report again only if something visible changed
+    private static void revalidate(Set<String> stale, Map<String, UserProfile> shown,
+                                   ProfilesCallback callback) {
+        if (stale.isEmpty()) return;
+
+        fetch(stale, new ProfilesCallback() {
+            @Override
+            public void onSuccess(Map<String, UserProfile> profiles) {
+                boolean changed = false;
+                for (Map.Entry<String, UserProfile> fresh : profiles.entrySet()) {
+                    UserProfile old = shown.get(fresh.getKey());
+                    if (old == null
+                            || !Objects.equals(old.getDisplayName(), fresh.getValue().getDisplayName())
+                            || !Objects.equals(old.getPhotoUrl(), fresh.getValue().getPhotoUrl())) {
+                        changed = true;
+                        break;
+                    }
+                }
+                if (changed) {
+                    Map<String, UserProfile> merged = new HashMap<>(shown);
+                    merged.putAll(profiles);
+                    callback.onSuccess(merged);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // Keep showing the stale profiles
+            }
+        });
+    }
+
+    // Queue IDs for the next batched network read
+    private static void fetch(Set<String> ids, ProfilesCallback callback) {
+        Request request = new Request(ids, callback);
+        for (String id : ids) {
+            List<Request> waiters = waitersById.get(id);
+            if (waiters == null) {
+                waiters = new ArrayList<>();
+                waitersById.put(id, waiters);
+                queuedIds.add(id);
+            }
+            waiters.add(request);
+        }
+
+        if (!queuedIds.isEmpty() && !flushScheduled) {
+            flushScheduled = true;
+            mainHandler.post(UserProfileRepository::flush);
+        }
+    }
+
+    private static void flush() {
+        flushScheduled = false;
+        List<String> ids = new ArrayList<>(queuedIds);
+        queuedIds.clear();
+
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            List<String> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+            fetchChunk(new ArrayList<>(chunk));
+        }
+    }
+
+    private static void fetchChunk(List<String> chunk) {
+        db.collection(COLLECTION_NAME)
+                .whereIn(FieldPath.documentId(), chunk)
+                .get()
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    Map<String, UserProfile> found = new HashMap<>();
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        found.put(document.getId(), documentToProfile(document));
+                    }
+                    for (String id : chunk) {
+                        complete(id, found.get(id), null);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    for (String id : chunk) {
+                        complete(id, null, e);
+                    }
+                });
+    }
+
+    private static void complete(String id, UserProfile profile, Exception error) {
+        List<Request> waiters = waitersById.remove(id);
+        if (waiters == null) return;
+
+        // Cache misses too, so users without a profile are not refetched every time
+        UserProfile resolved = error == null ? cache.put(id, profile).getProfile() : null;
+
+        for (Request request : waiters) {
+            request.remaining.remove(id);
+            if (resolved != null) {
+                request.profiles.put(id, resolved);
+            }
+            if (error != null) {
+                request.error = error;
+            }
+
+            if (request.remaining.isEmpty()) {
+                // Partial results are still useful; only fail when nothing came back
+                if (request.profiles.isEmpty() && request.error != null) {
+                    request.callback.onError(request.error);
+                } else {
+                    request.callback.onSuccess(request.profiles);
+                }
+            }
+        }
+    }
+
+    private static UserProfile documentToProfile(DocumentSnapshot document) {
+        UserProfile profile = new UserProfile();
+        profile.setId(document.getId());
+        profile.setDisplayName(document.getString("displayName"));
+        profile.setPhotoUrl(document.getString("photoUrl"));
+        return profile;
+    }
+}
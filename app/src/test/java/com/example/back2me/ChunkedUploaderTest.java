@@ -0,0 +1,201 @@
+package com.example.back2me;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Runs the chunked upload protocol against a local MockWebServer standing
+ * in for Cloudinary, with small chunks and a 1 ms backoff so retries are
+ * quick.
+ */
+public class ChunkedUploaderTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final String UPLOAD_ID = "test-upload";
+    private static final Map<String, String> FIELDS = Collections.singletonMap("upload_preset", "preset");
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void sendsEveryChunkWithItsRangeAndOneUploadId() throws Exception {
+        server.enqueue(ok("{}"));
+        server.enqueue(ok("{}"));
+        server.enqueue(ok("{\"secure_url\":\"https://example.com/a.webp\"}"));
+
+        JsonObject result = uploader(3).upload(data(2500), "a.webp", "image/webp", UPLOAD_ID, 0, null);
+
+        assertEquals("https://example.com/a.webp", result.get("secure_url").getAsString());
+        assertEquals(3, server.getRequestCount());
+        assertChunk(server.takeRequest(), "bytes 0-1023/2500");
+        assertChunk(server.takeRequest(), "bytes 1024-2047/2500");
+        assertChunk(server.takeRequest(), "bytes 2048-2499/2500");
+    }
+
+    @Test
+    public void retriesOnlyTheFailedChunk() throws Exception {
+        server.enqueue(ok("{}"));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(ok("{\"secure_url\":\"u\"}"));
+
+        uploader(3).upload(data(2048), "a.webp", "image/webp", UPLOAD_ID, 0, null);
+
+        assertEquals(4, server.getRequestCount());
+        assertChunk(server.takeRequest(), "bytes 0-1023/2048");
+        assertChunk(server.takeRequest(), "bytes 1024-2047/2048");
+        assertChunk(server.takeRequest(), "bytes 1024-2047/2048");
+        assertChunk(server.takeRequest(), "bytes 1024-2047/2048");
+    }
+
+    @Test
+    public void givesUpAfterMaxAttemptsAndResumesFromConfirmedBytes() throws Exception {
+        server.enqueue(ok("{}"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(502));
+
+        ChunkedUploader first = uploader(2);
+        try {
+            first.upload(data(2048), "a.webp", "image/webp", UPLOAD_ID, 0, null);
+            fail("expected the upload to give up");
+        } catch (ChunkedUploader.RejectedException e) {
+            fail("server errors should be retried, not rejected");
+        } catch (IOException expected) {
+            // Retries ran out
+        }
+        assertEquals(1024, first.getBytesConfirmed());
+        assertEquals(3, server.getRequestCount());
+
+        server.enqueue(ok("{\"secure_url\":\"u\"}"));
+        ChunkedUploader second = uploader(2);
+        second.upload(data(2048), "a.webp", "image/webp", UPLOAD_ID, first.getBytesConfirmed(), null);
+
+        assertEquals(2048, second.getBytesConfirmed());
+        for (int i = 0; i < 3; i++) {
+            server.takeRequest();
+        }
+        assertChunk(server.takeRequest(), "bytes 1024-2047/2048");
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"error\":\"bad preset\"}"));
+
+        try {
+            uploader(5).upload(data(100), "a.webp", "image/webp", UPLOAD_ID, 0, null);
+            fail("expected the chunk to be rejected");
+        } catch (ChunkedUploader.RejectedException e) {
+            assertEquals(400, e.getCode());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void progressRisesToTheTotal() throws Exception {
+        server.enqueue(ok("{}"));
+        server.enqueue(ok("{\"secure_url\":\"u\"}"));
+        List<Long> sent = new ArrayList<>();
+
+        uploader(1).upload(data(2000), "a.webp", "image/webp", UPLOAD_ID, 0,
+                (bytesSent, totalBytes) -> {
+                    assertEquals(2000, totalBytes);
+                    sent.add(bytesSent);
+                });
+
+        assertFalse(sent.isEmpty());
+        for (int i = 1; i < sent.size(); i++) {
+            assertTrue(sent.get(i) >= sent.get(i - 1));
+        }
+        assertEquals(2000L, (long) sent.get(sent.size() - 1));
+    }
+
+    @Test
+    public void uploadsFromFile() throws Exception {
+        File file = File.createTempFile("chunked", ".webp");
+        try {
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(data(1500));
+            }
+            server.enqueue(ok("{}"));
+            server.enqueue(ok("{\"secure_url\":\"u\"}"));
+
+            uploader(1).upload(file, "a.webp", "image/webp", UPLOAD_ID, 0, null);
+
+            assertChunk(server.takeRequest(), "bytes 0-1023/1500");
+            assertChunk(server.takeRequest(), "bytes 1024-1499/1500");
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void cancelledUploadSendsNothing() throws Exception {
+        ChunkedUploader uploader = uploader(3);
+        uploader.cancel();
+
+        try {
+            uploader.upload(data(100), "a.webp", "image/webp", UPLOAD_ID, 0, null);
+            fail("expected the upload to be cancelled");
+        } catch (IOException expected) {
+            // Cancelled before the first chunk
+        }
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private ChunkedUploader uploader(int maxAttempts) {
+        return new ChunkedUploader(client, server.url("/upload").toString(), FIELDS,
+                CHUNK_SIZE, maxAttempts, 1);
+    }
+
+    private static MockResponse ok(String body) {
+        return new MockResponse().setResponseCode(200).setBody(body);
+    }
+
+    private static void assertChunk(RecordedRequest request, String contentRange) {
+        assertEquals(UPLOAD_ID, request.getHeader("X-Unique-Upload-Id"));
+        assertEquals(contentRange, request.getHeader("Content-Range"));
+        assertTrue(request.getBody().readUtf8().contains("name=\"upload_preset\""));
+    }
+
+    private static byte[] data(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+}
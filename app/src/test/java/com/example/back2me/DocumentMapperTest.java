@@ -0,0 +1,228 @@
+package com.example.back2me;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.google.firebase.Timestamp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the generated mappers against the hand-written mapping code they
+ * replaced, which is kept here as the reference. The only additions are the
+ * epoch-millis fields, stored as Timestamps.
+ */
+public class DocumentMapperTest {
+
+    @Test
+    public void itemToMapMatchesHandWrittenMapping() {
+        Item item = new Item("item1", "Blue backpack", "Library", "Left near the desk",
+                "lost", "user1", "2024-03-01T10:00:00Z", "https://example.com/bag.jpg");
+
+        Map<String, Object> expected = legacyItemToMap(item);
+        expected.put("createdAt", timestamp("2024-03-01T10:00:00Z"));
+        assertEquals(expected, ItemMapper.toMap(item));
+    }
+
+    @Test
+    public void itemFromMapMatchesHandWrittenMapping() {
+        Item source = new Item("item1", "Keys", "Gym", null, "found", "user2", "2024-03-02T09:30:00Z", "");
+        Map<String, Object> data = legacyItemToMap(source);
+
+        Item expected = legacyDocumentToItem("item1", data);
+        Item actual = ItemMapper.fromMap("item1", data);
+
+        assertEquals(legacyItemToMap(expected), legacyItemToMap(actual));
+        assertNull(actual.getDescription());
+        // Older documents have no Timestamp; the ISO string is parsed instead
+        assertEquals(Timestamps.parseIso("2024-03-02T09:30:00Z"), actual.getCreatedAt());
+    }
+
+    @Test
+    public void storedTimestampWinsOverIsoString() {
+        Map<String, Object> data = legacyItemToMap(
+                new Item("item1", "Keys", "Gym", "", "found", "user2", "2024-03-02T09:30:00Z", ""));
+        long stored = Timestamps.parseIso("2024-03-02T09:30:00Z") + 123;
+        data.put("createdAt", new Timestamp(new Date(stored)));
+
+        assertEquals(stored, ItemMapper.fromMap("item1", data).getCreatedAt());
+    }
+
+    @Test
+    public void unknownTimeIsLeftOutOfMap() {
+        // No parseable createdDate, so createdAt is 0
+        Item item = new Item("item1", "Keys", "Gym", "", "found", "user2", "", "");
+
+        Map<String, Object> data = ItemMapper.toMap(item);
+
+        assertEquals(legacyItemToMap(item), data);
+        assertFalse(data.containsKey("createdAt"));
+    }
+
+    @Test
+    public void claimToMapMatchesHandWrittenMapping() {
+        Claim claim = new Claim("claim1", "item1", "Keys", "user3", "user3@example.com", "Sam",
+                "user2", "These are mine", "pending", "2024-03-03T12:00:00Z", "found");
+
+        Map<String, Object> expected = legacyClaimToMap(claim);
+        expected.put("createdAt", timestamp("2024-03-03T12:00:00Z"));
+        assertEquals(expected, ClaimMapper.toMap(claim));
+    }
+
+    @Test
+    public void claimFromMapMatchesHandWrittenMapping() {
+        Claim source = new Claim("claim1", "item1", "Keys", "user3", "user3@example.com", "Sam",
+                "user2", "These are mine", "approved", "2024-03-03T12:00:00Z", "found");
+        Map<String, Object> data = legacyClaimToMap(source);
+
+        Claim expected = legacyDocumentToClaim("claim1", data);
+        Claim actual = ClaimMapper.fromMap("claim1", data);
+
+        assertEquals(legacyClaimToMap(expected), legacyClaimToMap(actual));
+    }
+
+    @Test
+    public void conversationRoundTripsThroughMap() {
+        Map<String, String> names = new HashMap<>();
+        names.put("user1", "Alex");
+        names.put("user2", "Sam");
+        List<String> participants = Arrays.asList("user1", "user2");
+        Conversation conversation = new Conversation("user1_user2_item1", participants, names,
+                "item1", "Keys", "See you at noon", "2024-03-04T08:00:00Z");
+
+        Map<String, Object> data = ConversationMapper.toMap(conversation);
+        Map<String, Object> expected = legacyConversationToMap(conversation);
+        expected.put("lastMessageAt", timestamp("2024-03-04T08:00:00Z"));
+        assertEquals(expected, data);
+
+        Conversation actual = ConversationMapper.fromMap(conversation.getId(), data);
+        assertEquals(legacyConversationToMap(conversation), legacyConversationToMap(actual));
+        assertEquals(conversation.getLastMessageAt(), actual.getLastMessageAt());
+    }
+
+    @Test
+    public void messageToMapLeavesOutIdAndLocalState() {
+        Message message = new Message("msg1", "user1", "Alex", "Hello", "2024-03-04T08:01:00Z", true);
+        message.setSendState(Message.SendState.SENDING);
+
+        Map<String, Object> data = MessageMapper.toMap(message);
+        Map<String, Object> expected = legacyMessageToMap(message);
+        expected.put("sentAt", timestamp("2024-03-04T08:01:00Z"));
+        assertEquals(expected, data);
+        assertFalse(data.containsKey("id"));
+        assertFalse(data.containsKey("read"));
+        assertFalse(data.containsKey("sendState"));
+    }
+
+    @Test
+    public void messageFromMapMatchesHandWrittenMapping() {
+        Map<String, Object> data = legacyMessageToMap(
+                new Message("msg1", "user1", "Alex", "Hello", "2024-03-04T08:01:00Z", false));
+
+        Message actual = MessageMapper.fromMap("msg1", data);
+
+        assertEquals("msg1", actual.getId());
+        assertEquals(Message.SendState.SENT, actual.getSendState());
+        assertEquals(data, legacyMessageToMap(actual));
+    }
+
+    @Test
+    public void fieldCountsMatchStoredFields() {
+        assertEquals(9, ItemMapper.FIELD_COUNT);
+        assertEquals(12, ClaimMapper.FIELD_COUNT);
+        assertEquals(8, ConversationMapper.FIELD_COUNT);
+        assertEquals(5, MessageMapper.FIELD_COUNT);
+    }
+
+    private static Timestamp timestamp(String iso) {
+        return new Timestamp(new Date(Timestamps.parseIso(iso)));
+    }
+
+    // Hand-written mappings the generated code replaced
+
+    private static Map<String, Object> legacyItemToMap(Item item) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", item.getId());
+        map.put("name", item.getName());
+        map.put("location", item.getLocation());
+        map.put("description", item.getDescription());
+        map.put("status", item.getStatus());
+        map.put("createdBy", item.getCreatedBy());
+        map.put("createdDate", item.getCreatedDate());
+        map.put("imageUrl", item.getImageUrl());
+        return map;
+    }
+
+    private static Item legacyDocumentToItem(String id, Map<String, Object> data) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName((String) data.get("name"));
+        item.setLocation((String) data.get("location"));
+        item.setDescription((String) data.get("description"));
+        item.setStatus((String) data.get("status"));
+        item.setCreatedBy((String) data.get("createdBy"));
+        item.setCreatedDate((String) data.get("createdDate"));
+        item.setImageUrl((String) data.get("imageUrl"));
+        return item;
+    }
+
+    private static Map<String, Object> legacyClaimToMap(Claim claim) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", claim.getId());
+        map.put("itemId", claim.getItemId());
+        map.put("itemName", claim.getItemName());
+        map.put("itemStatus", claim.getItemStatus());
+        map.put("claimerId", claim.getClaimerId());
+        map.put("claimerName", claim.getClaimerName());
+        map.put("claimerEmail", claim.getClaimerEmail());
+        map.put("ownerId", claim.getOwnerId());
+        map.put("message", claim.getMessage());
+        map.put("status", claim.getStatus());
+        map.put("createdDate", claim.getCreatedDate());
+        return map;
+    }
+
+    private static Claim legacyDocumentToClaim(String id, Map<String, Object> data) {
+        Claim claim = new Claim();
+        claim.setId(id);
+        claim.setItemId((String) data.get("itemId"));
+        claim.setItemName((String) data.get("itemName"));
+        claim.setItemStatus((String) data.get("itemStatus"));
+        claim.setClaimerId((String) data.get("claimerId"));
+        claim.setClaimerName((String) data.get("claimerName"));
+        claim.setClaimerEmail((String) data.get("claimerEmail"));
+        claim.setOwnerId((String) data.get("ownerId"));
+        claim.setMessage((String) data.get("message"));
+        claim.setStatus((String) data.get("status"));
+        claim.setCreatedDate((String) data.get("createdDate"));
+        return claim;
+    }
+
+    private static Map<String, Object> legacyConversationToMap(Conversation conversation) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", conversation.getId());
+        map.put("participants", conversation.getParticipants());
+        map.put("participantNames", conversation.getParticipantNames());
+        map.put("itemId", conversation.getItemId());
+        map.put("itemName", conversation.getItemName());
+        map.put("lastMessage", conversation.getLastMessage());
+        map.put("lastMessageTime", conversation.getLastMessageTime());
+        return map;
+    }
+
+    private static Map<String, Object> legacyMessageToMap(Message message) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("senderId", message.getSenderId());
+        map.put("senderName", message.getSenderName());
+        map.put("text", message.getText());
+        map.put("timestamp", message.getTimestamp());
+        return map;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.back2me;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Checks the quality search against a stand-in lossy encoder: sample
+ * images are quantised more coarsely as quality drops, then deflated, so
+ * like a real codec the output shrinks as quality goes down, faster for
+ * smooth images than for noisy ones.
+ */
+public class TargetSizeEncoderTest {
+
+    private static final int SIZE = 256;
+    private static final int MIN_QUALITY = 40;
+    private static final int MAX_QUALITY = 90;
+
+    @Test
+    public void findsHighestQualityWithinBudget() throws Exception {
+        for (int[] image : new int[][]{gradient(), shapes(), noise()}) {
+            CountingEncoder encoder = new CountingEncoder(image);
+            int budget = (encoder.sizeAt(MIN_QUALITY) + encoder.sizeAt(MAX_QUALITY)) / 2;
+
+            TargetSizeEncoder.Result result = TargetSizeEncoder.encode(encoder, budget, MIN_QUALITY, MAX_QUALITY);
+
+            assertTrue(result.isWithinBudget());
+            assertTrue(result.getBytes().length <= budget);
+            assertEquals(encoder.sizeAt(result.getQuality()), result.getBytes().length);
+            assertEquals(highestFitting(encoder, budget), result.getQuality());
+        }
+    }
+
+    @Test
+    public void searchTakesLogarithmicAttempts() throws Exception {
+        CountingEncoder encoder = new CountingEncoder(noise());
+        int budget = encoder.sizeAt(57);
+
+        TargetSizeEncoder.Result result = TargetSizeEncoder.encode(encoder, budget, MIN_QUALITY, MAX_QUALITY);
+
+        // One try at the top, then a binary search over the remaining 50 qualities
+        assertTrue("took " + result.getAttempts(), result.getAttempts() <= 7);
+        assertEquals(result.getAttempts(), encoder.calls);
+    }
+
+    @Test
+    public void smallImageIsEncodedOnceAtMaxQuality() throws Exception {
+        CountingEncoder encoder = new CountingEncoder(gradient());
+
+        TargetSizeEncoder.Result result = TargetSizeEncoder.encode(
+                encoder, encoder.sizeAt(MAX_QUALITY), MIN_QUALITY, MAX_QUALITY);
+
+        assertEquals(MAX_QUALITY, result.getQuality());
+        assertEquals(1, result.getAttempts());
+        assertTrue(result.isWithinBudget());
+    }
+
+    @Test
+    public void unreachableBudgetReturnsLowestQuality() throws Exception {
+        CountingEncoder encoder = new CountingEncoder(noise());
+
+        TargetSizeEncoder.Result result = TargetSizeEncoder.encode(encoder, 100, MIN_QUALITY, MAX_QUALITY);
+
+        assertFalse(result.isWithinBudget());
+        assertEquals(MIN_QUALITY, result.getQuality());
+        assertEquals(encoder.sizeAt(MIN_QUALITY), result.getBytes().length);
+    }
+
+    @Test
+    public void singleQualityRange() throws Exception {
+        CountingEncoder encoder = new CountingEncoder(shapes());
+
+        TargetSizeEncoder.Result result = TargetSizeEncoder.encode(encoder, 1, 70, 70);
+
+        assertFalse(result.isWithinBudget());
+        assertEquals(70, result.getQuality());
+        assertEquals(encoder.sizeAt(70), result.getBytes().length);
+    }
+
+    @Test
+    public void smoothImagesFitTheUploadBudgetAtHigherQuality() throws Exception {
+        int budget = 4 * 1024;
+        TargetSizeEncoder.Result smooth = TargetSizeEncoder.encode(
+                new CountingEncoder(gradient()), budget, MIN_QUALITY, MAX_QUALITY);
+        TargetSizeEncoder.Result busy = TargetSizeEncoder.encode(
+                new CountingEncoder(shapesWithGrain()), budget, MIN_QUALITY, MAX_QUALITY);
+
+        assertTrue(smooth.isWithinBudget());
+        assertTrue(smooth.getQuality() > busy.getQuality());
+    }
+
+    // Brute force over every quality, for checking the search
+    private static int highestFitting(CountingEncoder encoder, int budget) throws Exception {
+        for (int quality = MAX_QUALITY; quality >= MIN_QUALITY; quality--) {
+            if (encoder.sizeAt(quality) <= budget) return quality;
+        }
+        return -1;
+    }
+
+    private static final class CountingEncoder implements TargetSizeEncoder.Encoder {
+        private final int[] pixels;
+        int calls = 0;
+
+        CountingEncoder(int[] pixels) {
+            this.pixels = pixels;
+        }
+
+        @Override
+        public byte[] encode(int quality) {
+            calls++;
+            return compress(pixels, quality);
+        }
+
+        // Size without counting as an attempt
+        int sizeAt(int quality) {
+            return compress(pixels, quality).length;
+        }
+    }
+
+    // Quantise each 8-bit sample to a step that grows as quality drops, then deflate
+    private static byte[] compress(int[] pixels, int quality) {
+        int step = 1 + (100 - quality) / 3;
+        byte[] raw = new byte[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            raw[i] = (byte) (pixels[i] / step * step);
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    // Sample images: 8-bit grey, SIZE x SIZE
+
+    private static int[] gradient() {
+        int[] pixels = new int[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                pixels[y * SIZE + x] = (x + y) / 2;
+            }
+        }
+        return pixels;
+    }
+
+    private static int[] shapes() {
+        int[] pixels = new int[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int dx = x - SIZE / 2;
+                int dy = y - SIZE / 2;
+                boolean inCircle = dx * dx + dy * dy < (SIZE / 3) * (SIZE / 3);
+                boolean inBox = x > SIZE / 8 && x < SIZE / 3 && y > SIZE / 8 && y < SIZE / 2;
+                pixels[y * SIZE + x] = inCircle ? 200 - y / 4 : inBox ? 60 + x / 4 : 120;
+            }
+        }
+        return pixels;
+    }
+
+    // Shapes with sensor-like grain, the usual look of a phone photo
+    private static int[] shapesWithGrain() {
+        int[] pixels = shapes();
+        Random random = new Random(7);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = Math.max(0, Math.min(255, pixels[i] + (int) (random.nextGaussian() * 12)));
+        }
+        return pixels;
+    }
+
+    private static int[] noise() {
+        int[] pixels = new int[SIZE * SIZE];
+        Random random = new Random(42);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt(256);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,9 @@
+plugins {
+    `java-library`
+}
+
+// Annotation processor for the app's Firestore models; runs on the build machine only
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
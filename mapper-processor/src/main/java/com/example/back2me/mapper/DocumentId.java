@@ -0,0 +1,18 @@
+package com.example.back2me.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the String field that holds the document ID. It is read from the
+ * snapshot's ID rather than from a field of the document.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface DocumentId {
+
+    // Whether toMap also writes the ID as a regular field
+    boolean stored() default false;
+}
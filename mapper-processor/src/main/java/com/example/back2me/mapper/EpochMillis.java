@@ -0,0 +1,18 @@
+package com.example.back2me.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a long field of epoch millis that is stored as a Firestore
+ * Timestamp. A document without the field leaves the value untouched, and
+ * these fields are set after all others, so a setter that derives the value
+ * from another field acts as the fallback. Zero means no time and is
+ * written as null.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface EpochMillis {
+}
@@ -0,0 +1,20 @@
+package com.example.back2me.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class stored as a Firestore document. A {@code <Class>Mapper}
+ * is generated next to it at build time, with field-name constants,
+ * {@code fromDocument}, {@code fromMap} and {@code toMap}.
+ *
+ * The class needs a no-argument constructor and a getter and setter for
+ * every stored field. Static and final fields are never stored; other
+ * fields can be left out with {@link Ignore}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface FirestoreDocument {
+}
@@ -0,0 +1,349 @@
+package com.example.back2me.mapper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code <Class>Mapper} for every {@link FirestoreDocument} class.
+ *
+ * The mappers call the model's getters and setters directly, so documents
+ * are converted without reflection. Field names are compile-time constants,
+ * and toMap presizes its map for the number of stored fields.
+ */
+@SupportedAnnotationTypes({
+        "com.example.back2me.mapper.FirestoreDocument",
+        "com.example.back2me.mapper.DocumentId",
+        "com.example.back2me.mapper.EpochMillis",
+        "com.example.back2me.mapper.Ignore"
+})
+public class MapperProcessor extends AbstractProcessor {
+
+    // How each field type is read from a snapshot and from a plain map, and
+    // written to a map; the arguments are the constant, the type and the getter
+    private enum Kind {
+        STRING("document.getString(%s)", "(String) data.get(%s)"),
+        BOOLEAN("Boolean.TRUE.equals(document.getBoolean(%s))",
+                "Boolean.TRUE.equals(data.get(%s))"),
+        BOXED_BOOLEAN("document.getBoolean(%s)", "(Boolean) data.get(%s)"),
+        LONG("orZero(document.getLong(%s))", "orZero((Long) data.get(%s))"),
+        BOXED_LONG("document.getLong(%s)", "(Long) data.get(%s)"),
+        DOUBLE("orZero(document.getDouble(%s))", "orZero((Double) data.get(%s))"),
+        BOXED_DOUBLE("document.getDouble(%s)", "(Double) data.get(%s)"),
+        // Lists, maps and other values Firestore returns as plain Java objects
+        OBJECT("(%2$s) document.get(%1$s)", "(%2$s) data.get(%1$s)"),
+        // An @EpochMillis long stored as a Timestamp; left out of toMap while 0
+        EPOCH_MILLIS("millisOr(document.getTimestamp(%1$s), model.%3$s())",
+                "millisOr((Timestamp) data.get(%1$s), model.%3$s())",
+                "new Timestamp(new Date(model.%3$s()))");
+
+        final String documentRead;
+        final String mapRead;
+        final String write;
+
+        Kind(String documentRead, String mapRead) {
+            this(documentRead, mapRead, "model.%3$s()");
+        }
+
+        Kind(String documentRead, String mapRead, String write) {
+            this.documentRead = documentRead;
+            this.mapRead = mapRead;
+            this.write = write;
+        }
+    }
+
+    private static class Property {
+        String name;
+        String constant;
+        String type;
+        Kind kind;
+        String getter;
+        String setter;
+        boolean documentId;
+        boolean stored = true;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(FirestoreDocument.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@FirestoreDocument only applies to classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<Property> properties = collectProperties(type);
+            if (properties == null) continue;
+
+            try {
+                write(type, properties);
+            } catch (IOException e) {
+                error(type, "Could not write mapper: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    // Null when the class cannot be mapped; the errors are already reported
+    private List<Property> collectProperties(TypeElement type) {
+        Map<String, ExecutableElement> methods = new HashMap<>();
+        boolean hasEmptyConstructor = false;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.METHOD) {
+                methods.put(member.getSimpleName().toString(), (ExecutableElement) member);
+            } else if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && member.getModifiers().contains(Modifier.PUBLIC)) {
+                hasEmptyConstructor = true;
+            }
+        }
+        boolean valid = hasEmptyConstructor;
+        if (!hasEmptyConstructor) {
+            error(type, "@FirestoreDocument classes need a public no-argument constructor");
+        }
+
+        List<Property> properties = new ArrayList<>();
+        boolean hasDocumentId = false;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)
+                    || modifiers.contains(Modifier.TRANSIENT) || field.getAnnotation(Ignore.class) != null) {
+                continue;
+            }
+
+            Property property = new Property();
+            property.name = field.getSimpleName().toString();
+            property.constant = constantName(property.name);
+            property.type = field.asType().toString();
+            property.kind = kindOf(field.asType());
+
+            String capitalized = Character.toUpperCase(property.name.charAt(0)) + property.name.substring(1);
+            String getter = (property.kind == Kind.BOOLEAN ? "is" : "get") + capitalized;
+            if (!hasAccessor(methods.get(getter), 0)) {
+                error(field, "Missing public " + getter + "() for stored field " + property.name);
+                valid = false;
+            }
+            String setter = "set" + capitalized;
+            if (!hasAccessor(methods.get(setter), 1)) {
+                error(field, "Missing public " + setter + "(...) for stored field " + property.name);
+                valid = false;
+            }
+            property.getter = getter;
+            property.setter = setter;
+
+            if (field.getAnnotation(EpochMillis.class) != null) {
+                if (property.kind != Kind.LONG) {
+                    error(field, "@EpochMillis must be on a long field");
+                    valid = false;
+                }
+                property.kind = Kind.EPOCH_MILLIS;
+            }
+
+            DocumentId documentId = field.getAnnotation(DocumentId.class);
+            if (documentId != null) {
+                if (hasDocumentId || property.kind != Kind.STRING) {
+                    error(field, "@DocumentId must be on a single String field");
+                    valid = false;
+                }
+                hasDocumentId = true;
+                property.documentId = true;
+                property.stored = documentId.stored();
+            }
+            properties.add(property);
+        }
+        if (!valid) return null;
+
+        // Timestamps are read last, so they win over values derived from other fields
+        List<Property> ordered = new ArrayList<>(properties.size());
+        for (Property property : properties) {
+            if (property.kind != Kind.EPOCH_MILLIS) ordered.add(property);
+        }
+        for (Property property : properties) {
+            if (property.kind == Kind.EPOCH_MILLIS) ordered.add(property);
+        }
+        return ordered;
+    }
+
+    private void write(TypeElement type, List<Property> properties) throws IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String model = type.getSimpleName().toString();
+        String mapper = model + "Mapper";
+
+        int storedCount = 0;
+        boolean hasObjects = false;
+        boolean hasLongs = false;
+        boolean hasDoubles = false;
+        boolean hasTimestamps = false;
+        for (Property property : properties) {
+            if (property.stored) storedCount++;
+            hasObjects |= property.kind == Kind.OBJECT;
+            hasLongs |= property.kind == Kind.LONG;
+            hasDoubles |= property.kind == Kind.DOUBLE;
+            hasTimestamps |= property.kind == Kind.EPOCH_MILLIS;
+        }
+        // Large enough that filling the map never triggers a resize
+        int capacity = (int) Math.ceil(storedCount / 0.75);
+
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated by MapperProcessor from ").append(model).append(". Do not edit.\n");
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        if (hasTimestamps) out.append("import com.google.firebase.Timestamp;\n");
+        out.append("import com.google.firebase.firestore.DocumentSnapshot;\n\n");
+        if (hasTimestamps) out.append("import java.util.Date;\n");
+        out.append("import java.util.HashMap;\n");
+        out.append("import java.util.Map;\n\n");
+
+        out.append("/**\n");
+        out.append(" * Converts {@link ").append(model).append("} to and from Firestore documents.\n");
+        out.append(" */\n");
+        out.append("public final class ").append(mapper).append(" {\n\n");
+
+        for (Property property : properties) {
+            out.append("    public static final String ").append(property.constant)
+                    .append(" = \"").append(property.name).append("\";\n");
+        }
+        out.append("\n");
+        out.append("    // Fields written by toMap, at most; a zero @EpochMillis value is left out\n");
+        out.append("    public static final int FIELD_COUNT = ").append(storedCount).append(";\n");
+        out.append("    private static final int MAP_CAPACITY = ").append(capacity).append(";\n\n");
+
+        out.append("    private ").append(mapper).append("() {\n    }\n\n");
+
+        if (hasObjects) out.append("    @SuppressWarnings(\"unchecked\")\n");
+        out.append("    public static ").append(model).append(" fromDocument(DocumentSnapshot document) {\n");
+        out.append("        ").append(model).append(" model = new ").append(model).append("();\n");
+        for (Property property : properties) {
+            String value = property.documentId
+                    ? "document.getId()"
+                    : String.format(Locale.ROOT, property.kind.documentRead,
+                            property.constant, property.type, property.getter);
+            out.append("        model.").append(property.setter).append("(").append(value).append(");\n");
+        }
+        out.append("        return model;\n");
+        out.append("    }\n\n");
+
+        if (hasObjects) out.append("    @SuppressWarnings(\"unchecked\")\n");
+        out.append("    public static ").append(model)
+                .append(" fromMap(String id, Map<String, Object> data) {\n");
+        out.append("        ").append(model).append(" model = new ").append(model).append("();\n");
+        for (Property property : properties) {
+            String value = property.documentId
+                    ? "id"
+                    : String.format(Locale.ROOT, property.kind.mapRead,
+                            property.constant, property.type, property.getter);
+            out.append("        model.").append(property.setter).append("(").append(value).append(");\n");
+        }
+        out.append("        return model;\n");
+        out.append("    }\n\n");
+
+        out.append("    public static Map<String, Object> toMap(").append(model).append(" model) {\n");
+        out.append("        Map<String, Object> map = new HashMap<>(MAP_CAPACITY);\n");
+        for (Property property : properties) {
+            if (!property.stored) continue;
+            String value = String.format(Locale.ROOT, property.kind.write,
+                    property.constant, property.type, property.getter);
+            if (property.kind == Kind.EPOCH_MILLIS) {
+                // An unknown time must not overwrite a stored one in a partial update
+                out.append("        if (model.").append(property.getter).append("() != 0) {\n");
+                out.append("            map.put(").append(property.constant).append(", ").append(value).append(");\n");
+                out.append("        }\n");
+                continue;
+            }
+            out.append("        map.put(").append(property.constant).append(", ").append(value).append(");\n");
+        }
+        out.append("        return map;\n");
+        out.append("    }\n");
+
+        if (hasLongs) {
+            out.append("\n    private static long orZero(Long value) {\n");
+            out.append("        return value != null ? value : 0L;\n");
+            out.append("    }\n");
+        }
+        if (hasDoubles) {
+            out.append("\n    private static double orZero(Double value) {\n");
+            out.append("        return value != null ? value : 0d;\n");
+            out.append("    }\n");
+        }
+        if (hasTimestamps) {
+            out.append("\n    private static long millisOr(Timestamp value, long fallback) {\n");
+            out.append("        return value != null ? value.toDate().getTime() : fallback;\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? mapper : packageName + "." + mapper;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(out.toString());
+        }
+    }
+
+    private static Kind kindOf(TypeMirror type) {
+        if (type.getKind() == TypeKind.BOOLEAN) return Kind.BOOLEAN;
+        if (type.getKind() == TypeKind.LONG) return Kind.LONG;
+        if (type.getKind() == TypeKind.DOUBLE) return Kind.DOUBLE;
+        switch (type.toString()) {
+            case "java.lang.String":
+                return Kind.STRING;
+            case "java.lang.Boolean":
+                return Kind.BOXED_BOOLEAN;
+            case "java.lang.Long":
+                return Kind.BOXED_LONG;
+            case "java.lang.Double":
+                return Kind.BOXED_DOUBLE;
+            default:
+                return Kind.OBJECT;
+        }
+    }
+
+    private static boolean hasAccessor(ExecutableElement method, int parameterCount) {
+        return method != null
+                && method.getModifiers().contains(Modifier.PUBLIC)
+                && !method.getModifiers().contains(Modifier.STATIC)
+                && method.getParameters().size() == parameterCount;
+    }
+
+    // lastMessageTime -> LAST_MESSAGE_TIME
+    private static String constantName(String fieldName) {
+        StringBuilder constant = new StringBuilder(fieldName.length() + 4);
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                constant.append('_');
+            }
+            constant.append(Character.toUpperCase(c));
+        }
+        return constant.toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Back2Me"
 include(":app")
+include(":mapper-processor")
  
\ No newline at end of file